@@ -0,0 +1,95 @@
+#!/usr/bin/env bash
+# Замер времени старта приложения в разных режимах.
+#
+#   scripts/startup-benchmark.sh [число запусков, по умолчанию 5]
+#
+# Режимы:
+#   default      - исполняемый jar, профиль по умолчанию, каждый раз новая база (spring.sql.init)
+#   prod         - исполняемый jar, профиль prod, существующая база
+#   prod-aot     - распакованное приложение, профиль prod, -Dspring.aot.enabled=true
+#   prod-aot-cds - то же плюс архив CDS, снятый обучающим запуском (-Dspring.context.exit=onRefresh)
+#
+# Время старта берётся из строки "Started FilmorateApplication ... (process running for N)",
+# то есть включает запуск JVM. Скрипт собирает проект с профилем Maven aot; с SKIP_BUILD=1 берёт
+# уже собранный target/filmorate-*.jar. Результат - медиана и минимум по каждому режиму.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK="$ROOT/target/startup-benchmark"
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+JAR_TOOL=${JAVA_HOME:+$JAVA_HOME/bin/}jar
+MAIN_CLASS=ru.yandex.practicum.filmorate.FilmorateApplication
+
+if [[ "${SKIP_BUILD:-0}" != 1 ]]; then
+    (cd "$ROOT" && mvn -B -q -Paot package -DskipTests)
+fi
+JAR=$(ls "$ROOT"/target/filmorate-*.jar | grep -v original | head -1)
+
+rm -rf "$WORK"
+mkdir -p "$WORK/app"
+(cd "$WORK/app" && unzip -q "$JAR")
+# CDS принимает в пути классов только jar-файлы, поэтому классы приложения тоже упаковываются.
+"$JAR_TOOL" cf "$WORK/app/application.jar" -C "$WORK/app/BOOT-INF/classes" .
+CLASSPATH="$WORK/app/application.jar:$WORK/app/BOOT-INF/lib/*"
+
+# Запускает приложение, ждёт строку о старте и печатает время в секундах.
+start() {
+    local db=$1
+    shift
+    local log="$WORK/run.log"
+    "$JAVA" "$@" --server.port="$PORT" --spring.datasource.url="jdbc:h2:file:$db;AUTO_SERVER=TRUE" >"$log" 2>&1 &
+    local pid=$!
+    local seconds=""
+    for _ in $(seq 600); do
+        seconds=$(sed -n 's/.*Started FilmorateApplication in .*process running for \([0-9.]*\)).*/\1/p' "$log")
+        if [[ -n "$seconds" ]] || ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 0.1
+    done
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    if [[ -z "$seconds" ]]; then
+        echo "Приложение не запустилось, журнал: $log" >&2
+        exit 1
+    fi
+    echo "$seconds"
+}
+
+summary() {
+    local mode=$1
+    sort -n | awk -v mode="$mode" '{ v[NR] = $1 } END {
+        median = NR % 2 ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2
+        printf "%-14s runs=%d median=%.3fs min=%.3fs\n", mode, NR, median, v[1]
+    }'
+}
+
+bench() {
+    local mode=$1
+    local fresh=$2
+    shift 2
+    local db="$WORK/db-$mode/filmorate"
+    for _ in $(seq "$RUNS"); do
+        if [[ "$fresh" == 1 ]]; then
+            rm -rf "$WORK/db-$mode"
+        fi
+        start "$db" "$@"
+    done | summary "$mode"
+}
+
+PROD=(--spring.profiles.active=prod)
+AOT=(-Dspring.aot.enabled=true -cp "$CLASSPATH" "$MAIN_CLASS")
+
+# Прогрев базы для режимов prod: первый запуск применяет схему и начальные данные.
+for mode in prod prod-aot prod-aot-cds; do
+    start "$WORK/db-$mode/filmorate" -jar "$JAR" "${PROD[@]}" >/dev/null
+done
+"$JAVA" -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.context.exit=onRefresh "${AOT[@]}" "${PROD[@]}" \
+    --server.port="$PORT" --spring.datasource.url="jdbc:h2:file:$WORK/db-cds/filmorate" >"$WORK/cds.log" 2>&1
+
+bench default 1 -jar "$JAR"
+bench prod 0 -jar "$JAR" "${PROD[@]}"
+bench prod-aot 0 "${AOT[@]}" "${PROD[@]}"
+bench prod-aot-cds 0 -XX:SharedArchiveFile="$WORK/app.jsa" "${AOT[@]}" "${PROD[@]}"
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Данные для бенчмарков: {@code size} пользователей и {@code size} фильмов с id от 1 до size.
+ * Каждый пользователь из первой половины лайкает фильм {@code (7919 * id) % size + 1} и один из
+ * ста «хитов» {@code id % 100 + 1}; вторая половина пользователей лайков не ставит, чтобы
+ * бенчмарк добавления лайка не упирался в уже существующие пары. Каждый пользователь дружит
+ * со следующими двумя по кругу, так что у соседей всегда есть общий друг.
+ */
+final class BenchmarkDataset {
+    static final int HITS = 100;
+    private static final int SPREAD = 7919;
+    private static final LocalDate BIRTHDAY = LocalDate.of(1990, 1, 1);
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2000, 1, 1);
+
+    private BenchmarkDataset() {
+    }
+
+    /**
+     * Создаёт базу H2 в памяти со схемой и справочниками приложения и возвращает её URL.
+     * При {@code withRows} таблицы сразу наполняются данными размера {@code size}.
+     */
+    static String createDatabase(String name, int size, boolean withRows) {
+        String url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : new String[]{"film_like", "friends", "film_genre", "films", "users"}) {
+            jdbcTemplate.execute("DELETE FROM " + table);
+        }
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH 1");
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH 1");
+        if (withRows) {
+            insertRows(jdbcTemplate, size);
+        }
+        return url;
+    }
+
+    static void fillStorages(UserStorage userStorage, FilmStorage filmStorage, int size) {
+        for (int id = 1; id <= size; id++) {
+            userStorage.create(new User(0, "user" + id + "@mail.ru", "user" + id, "user" + id, BIRTHDAY));
+            Film film = new Film();
+            film.setName("film" + id);
+            film.setDescription("Описание");
+            film.setReleaseDate(RELEASE_DATE);
+            film.setDuration(100);
+            film.setMpa(new Rating(id % 5 + 1, null));
+            film.setGenres(Set.of(new Genre(id % 6 + 1, null)));
+            filmStorage.create(film);
+        }
+        for (int id = 1; id <= size; id++) {
+            if (id <= size / 2) {
+                int spread = spreadFilm(id, size);
+                filmStorage.addLikeFilm(spread, id);
+                if (spread != id % HITS + 1) {
+                    filmStorage.addLikeFilm(id % HITS + 1, id);
+                }
+            }
+            userStorage.addFriends(id, id % size + 1);
+            userStorage.addFriends(id, (id + 1) % size + 1);
+        }
+    }
+
+    /**
+     * Первый пользователь без лайков.
+     */
+    static int firstUserWithoutLikes(int size) {
+        return size / 2 + 1;
+    }
+
+    private static int spreadFilm(int userId, int size) {
+        return (int) ((long) SPREAD * userId % size) + 1;
+    }
+
+    private static void insertRows(JdbcTemplate jdbcTemplate, int size) {
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email, login, birthday)
+                SELECT 'user' || X, 'user' || X || '@mail.ru', 'user' || X, ?
+                FROM SYSTEM_RANGE(1, ?)
+                """, BIRTHDAY, size);
+        jdbcTemplate.update("""
+                INSERT INTO films (film_name, description, duration, release_date, rating_id)
+                SELECT 'film' || X, 'Описание', 100, ?, MOD(X, 5) + 1
+                FROM SYSTEM_RANGE(1, ?)
+                """, RELEASE_DATE, size);
+        jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT X, MOD(X, 6) + 1 FROM SYSTEM_RANGE(1, ?)",
+                size);
+        jdbcTemplate.update("""
+                INSERT INTO film_like (user_id, film_id)
+                SELECT X, CAST(MOD(CAST(? AS BIGINT) * X, ?) + 1 AS INT) FROM SYSTEM_RANGE(1, ?)
+                UNION
+                SELECT X, MOD(X, ?) + 1 FROM SYSTEM_RANGE(1, ?)
+                """, SPREAD, size, size / 2, HITS, size / 2);
+        jdbcTemplate.update("""
+                INSERT INTO friends (user_id, friend_id, friend_status_id)
+                SELECT X, MOD(X, ?) + 1, 2 FROM SYSTEM_RANGE(1, ?)
+                UNION
+                SELECT X, MOD(X + 1, ?) + 1, 2 FROM SYSTEM_RANGE(1, ?)
+                """, size, size, size, size);
+        jdbcTemplate.update("""
+                MERGE INTO films (film_id, likes) KEY (film_id)
+                SELECT film_id, COUNT(*) FROM film_like GROUP BY film_id
+                """);
+    }
+}
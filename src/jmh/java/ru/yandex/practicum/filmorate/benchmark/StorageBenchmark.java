@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути хранилищ на наборах данных {@link BenchmarkDataset} разного размера.
+ * {@code jdbc} — хранилища на H2 (база наполняется SQL до старта контекста, как существующая
+ * база при запуске приложения), {@code in-memory} — профиль in-memory, наполняемый через API.
+ * Пропускная способность и распределение задержек снимаются режимами Throughput и SampleTime,
+ * скорость выделения памяти — профилировщиком {@code -prof gc}, который включён в профиле Maven jmh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class StorageBenchmark {
+    @Param({"jdbc", "in-memory"})
+    public String engine;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private int likesAdded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean inMemory = engine.equals("in-memory");
+        String url = BenchmarkDataset.createDatabase("benchmark-" + engine + "-" + size, size, !inMemory);
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(inMemory ? "in-memory" : "default")
+                .run("--spring.datasource.url=" + url,
+                        "--spring.sql.init.mode=never",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn",
+                        "--logging.level.ru.yandex.practicum.filmorate=warn",
+                        "--filmorate.likes.reconcile-initial-delay=P1D",
+                        "--filmorate.metrics.methods.enabled=false");
+        filmStorage = context.getBean(FilmStorage.class);
+        userStorage = context.getBean(UserStorage.class);
+        if (inMemory) {
+            BenchmarkDataset.fillStorages(userStorage, filmStorage, size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Film findById() {
+        return filmStorage.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilm() {
+        return filmStorage.getPopularFilm(10);
+    }
+
+    /**
+     * Каждый вызов ставит новый лайк: фильмы перебираются по кругу, пользователи — из половины
+     * без лайков, поэтому пары не повторяются, пока не пройден весь круг из size * size / 2 пар.
+     */
+    @Benchmark
+    public Film addLikeFilm() {
+        int like = likesAdded++;
+        int filmId = like % size + 1;
+        int userId = BenchmarkDataset.firstUserWithoutLikes(size) + like / size % (size / 2);
+        return filmStorage.addLikeFilm(filmId, userId);
+    }
+
+    @Benchmark
+    public List<User> getFriendsThisUser() {
+        return userStorage.getFriendsThisUser(randomId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int userId = randomId();
+        return userStorage.getCommonFriends(userId, userId % size + 1);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(size) + 1;
+    }
+}
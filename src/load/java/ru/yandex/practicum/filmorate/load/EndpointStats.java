@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и исходы запросов одной конечной точки. Время ответа считается от момента,
+ * когда запрос должен был уйти по расписанию, а не от фактической отправки: если генератор
+ * или сервер не успевают, ожидание в очереди попадает в гистограмму, и проблема
+ * координированного упущения не прячет хвосты. Время обслуживания (от фактической отправки)
+ * пишется отдельно для сравнения. Значения — в микросекундах.
+ */
+final class EndpointStats {
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    final Histogram responseTime = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    final LongAdder ok = new LongAdder();
+    final LongAdder clientErrors = new LongAdder();
+    final LongAdder serverErrors = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+
+    void record(long intendedNanos, long sentNanos, long completedNanos, int status) {
+        responseTime.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(completedNanos - intendedNanos)));
+        serviceTime.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(completedNanos - sentNanos)));
+        if (status < 0) {
+            failures.increment();
+        } else if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        } else {
+            ok.increment();
+        }
+    }
+
+    void add(EndpointStats other) {
+        responseTime.add(other.responseTime);
+        serviceTime.add(other.serviceTime);
+        ok.add(other.ok.sum());
+        clientErrors.add(other.clientErrors.sum());
+        serverErrors.add(other.serverErrors.sum());
+        failures.add(other.failures.sum());
+        dropped.add(other.dropped.sum());
+    }
+}
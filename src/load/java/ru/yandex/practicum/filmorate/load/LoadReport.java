@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Машиночитаемый отчёт прогона. Задержки — в миллисекундах; {@code histogram} — сжатая
+ * гистограмма времени ответа HdrHistogram в Base64, по ней отчёты можно объединять
+ * и пересчитывать любые перцентили ({@code Histogram.decodeFromCompressedByteBuffer}).
+ */
+record LoadReport(Instant startedAt, Map<String, String> settings, double targetRps, double achievedRps,
+                  long measuredMillis, Endpoint total, Map<String, Endpoint> endpoints) {
+
+    record Endpoint(long requests, long ok, long clientErrors, long serverErrors, long failures, long dropped,
+                    Latency responseTime, Latency serviceTime, String histogram) {
+
+        static Endpoint of(EndpointStats stats) {
+            return new Endpoint(stats.responseTime.getTotalCount(), stats.ok.sum(), stats.clientErrors.sum(),
+                    stats.serverErrors.sum(), stats.failures.sum(), stats.dropped.sum(),
+                    Latency.of(stats.responseTime), Latency.of(stats.serviceTime), encode(stats.responseTime));
+        }
+
+        private static String encode(Histogram histogram) {
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        }
+    }
+
+    record Latency(double mean, double p50, double p90, double p99, double p999, double max) {
+        static Latency of(Histogram histogram) {
+            return new Latency(millis(histogram.getMean()), millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(double micros) {
+            return Math.round(micros) / 1000.0;
+        }
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(path.toFile(), this);
+    }
+}
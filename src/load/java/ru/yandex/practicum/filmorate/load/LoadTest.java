@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.generator.SyntheticDataset;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Нагрузочный прогон в одной JVM: поднимает приложение на случайном порту поверх H2 в памяти,
+ * заполненной {@link SyntheticDataset}, и гоняет смесь {@link Scenario} в открытой модели
+ * {@link OpenLoopDriver} с заданной частотой. Итог пишется в лог и в JSON-отчёт {@link LoadReport}.
+ * <p>
+ * Параметры передаются как {@code ключ=значение} (см. {@link #DEFAULTS}); аргументы вида
+ * {@code --свойство=значение} уходят приложению, например {@code --spring.threads.virtual.enabled=true}.
+ * Запуск: {@code mvn -Pload verify -DskipTests -Dload.args="rps=500 duration=PT2M"}.
+ */
+public final class LoadTest {
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+    private static final String DATABASE_URL = "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1";
+    private static final Map<String, String> DEFAULTS = defaults();
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + DATABASE_URL,
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--logging.level.ru.yandex.practicum.filmorate=warn",
+                "--logging.level.ru.yandex.practicum.filmorate.load=info",
+                "--logging.level.org.zalando.logbook=warn",
+                "--filmorate.likes.reconcile-initial-delay=P1D"));
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                applicationArgs.add(arg);
+                continue;
+            }
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !DEFAULTS.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg + ", допустимые: " + DEFAULTS.keySet());
+            }
+            settings.put(pair[0], pair[1]);
+        }
+
+        int[] maxIds = prepareDatabase(settings);
+        int rps = Integer.parseInt(settings.get("rps"));
+        Duration warmup = Duration.parse(settings.get("warmup"));
+        Duration duration = Duration.parse(settings.get("duration"));
+        ExecutorService executor = Executors.newFixedThreadPool(Integer.parseInt(settings.get("threads")), runnable -> {
+            Thread thread = new Thread(runnable, "load-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run(applicationArgs.toArray(String[]::new))) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(executor)
+                    .build();
+            Scenario scenario = new Scenario(URI.create("http://localhost:" + port),
+                    Scenario.parseMix(settings.get("mix")), maxIds[0], maxIds[1]);
+            log.info("Нагрузка {} запросов/с: прогрев {}, измерение {}", rps, warmup, duration);
+            Instant startedAt = Instant.now();
+            Map<Scenario.Operation, EndpointStats> stats = new OpenLoopDriver(client, scenario, rps,
+                    Integer.parseInt(settings.get("max-in-flight"))).run(warmup, duration,
+                    Long.parseLong(settings.get("seed")));
+
+            LoadReport report = report(startedAt, settings, rps, duration, stats);
+            report.write(Path.of(settings.get("report")));
+            log(report);
+            log.info("Отчёт записан в {}", settings.get("report"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> defaults() {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("rps", "200");
+        defaults.put("warmup", "PT10S");
+        defaults.put("duration", "PT60S");
+        defaults.put("mix", "film=30,user=10,popular=15,friends=15,common=5,like=10,unlike=5,friend=7,unfriend=3");
+        defaults.put("users", "10000");
+        defaults.put("films", "2000");
+        defaults.put("likes-per-user", "20");
+        defaults.put("friends-per-user", "10");
+        defaults.put("seed", "42");
+        defaults.put("threads", "8");
+        defaults.put("max-in-flight", "2000");
+        defaults.put("report", "target/load-report.json");
+        return defaults;
+    }
+
+    /**
+     * Создаёт схему и справочники в H2 в памяти и заполняет её синтетическими данными до старта
+     * приложения, чтобы индексы и кэши строились по уже готовой базе. Возвращает наибольшие id
+     * пользователя и фильма.
+     */
+    private static int[] prepareDatabase(Map<String, String> settings) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(DATABASE_URL, "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new SyntheticDataset(jdbcTemplate, new SyntheticDataset.Settings(
+                Integer.parseInt(settings.get("users")), Integer.parseInt(settings.get("films")),
+                Double.parseDouble(settings.get("likes-per-user")),
+                Integer.parseInt(settings.get("friends-per-user")), 1.0, Long.parseLong(settings.get("seed")),
+                500, 20)).generate();
+        Integer maxUserId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Integer.class);
+        Integer maxFilmId = jdbcTemplate.queryForObject("SELECT MAX(film_id) FROM films", Integer.class);
+        return new int[]{maxUserId, maxFilmId};
+    }
+
+    private static LoadReport report(Instant startedAt, Map<String, String> settings, int rps, Duration duration,
+                                     Map<Scenario.Operation, EndpointStats> stats) {
+        EndpointStats total = new EndpointStats();
+        Map<String, LoadReport.Endpoint> endpoints = new TreeMap<>();
+        stats.forEach((operation, endpoint) -> {
+            if (endpoint.responseTime.getTotalCount() > 0 || endpoint.dropped.sum() > 0) {
+                endpoints.put(operation.endpoint, LoadReport.Endpoint.of(endpoint));
+                total.add(endpoint);
+            }
+        });
+        double achievedRps = total.responseTime.getTotalCount() / (duration.toMillis() / 1000.0);
+        return new LoadReport(startedAt, settings, rps, Math.round(achievedRps * 10) / 10.0, duration.toMillis(),
+                LoadReport.Endpoint.of(total), endpoints);
+    }
+
+    private static void log(LoadReport report) {
+        log.info("Цель {} запросов/с, получено {} запросов/с", report.targetRps(), report.achievedRps());
+        report.endpoints().forEach((endpoint, stats) -> log(endpoint, stats));
+        log("Итого", report.total());
+    }
+
+    private static void log(String endpoint, LoadReport.Endpoint stats) {
+        LoadReport.Latency latency = stats.responseTime();
+        log.info("{}: {} запросов, 4xx {}, 5xx {}, сбоев {}, пропущено {}; ответ, мс: p50 {}, p90 {}, p99 {}, "
+                        + "p99.9 {}, max {}; обслуживание p99 {} мс", endpoint, stats.requests(),
+                stats.clientErrors(), stats.serverErrors(), stats.failures(), stats.dropped(), latency.p50(),
+                latency.p90(), latency.p99(), latency.p999(), latency.max(), stats.serviceTime().p99());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Открытая модель нагрузки: запросы уходят по расписанию с постоянной частотой независимо
+ * от того, ответил ли сервер на предыдущие. Расписание ведёт один поток, ответы обрабатываются
+ * асинхронно. Если в полёте уже {@code maxInFlight} запросов, очередной не отправляется
+ * и учитывается как {@code dropped} — это защита генератора, а не часть измерения.
+ */
+final class OpenLoopDriver {
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final HttpClient client;
+    private final Scenario scenario;
+    private final int rps;
+    private final int maxInFlight;
+    private final Map<Scenario.Operation, EndpointStats> stats = new EnumMap<>(Scenario.Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenLoopDriver(HttpClient client, Scenario scenario, int rps, int maxInFlight) {
+        this.client = client;
+        this.scenario = scenario;
+        this.rps = rps;
+        this.maxInFlight = maxInFlight;
+        for (Scenario.Operation operation : Scenario.Operation.values()) {
+            stats.put(operation, new EndpointStats());
+        }
+    }
+
+    /**
+     * Прогревает сервер в течение {@code warmup}, затем измеряет {@code duration} и дожидается
+     * ответов на все отправленные запросы. Возвращает статистику только измеряемого окна.
+     */
+    Map<Scenario.Operation, EndpointStats> run(Duration warmup, Duration duration, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) rps;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + Math.round(i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Scenario.Call call = scenario.next(random);
+            EndpointStats endpoint = intended >= measureFrom ? stats.get(call.operation()) : null;
+            if (inFlight.get() >= maxInFlight) {
+                if (endpoint != null) {
+                    endpoint.dropped.increment();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long completed = System.nanoTime();
+                        inFlight.decrementAndGet();
+                        if (endpoint != null) {
+                            endpoint.record(intended, sent, completed, error == null ? response.statusCode() : -1);
+                        }
+                    });
+        }
+        long drainUntil = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return stats;
+    }
+}
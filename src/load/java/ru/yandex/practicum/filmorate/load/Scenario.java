@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Смесь запросов к {@code FilmController} и {@code UserController} с весами.
+ * Id выбираются равномерно из сгенерированного набора. Снятие лайка и удаление из друзей
+ * берут пару из тех, что сценарий раньше добавил сам, чтобы DELETE попадал в существующую
+ * строку, а не в 404; пока таких пар нет, вместо снятия отправляется добавление.
+ * Не потокобезопасен: {@link #next} вызывается только из цикла отправки драйвера.
+ */
+final class Scenario {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    enum Operation {
+        FILM("GET /films/{id}"),
+        USER("GET /users/{id}"),
+        POPULAR("GET /films/popular?count=10"),
+        FRIENDS("GET /users/{id}/friends"),
+        COMMON("GET /users/{id}/friends/common/{otherId}"),
+        LIKE("PUT /films/{id}/like/{userId}"),
+        UNLIKE("DELETE /films/{id}/like/{userId}"),
+        FRIEND("PUT /users/{id}/friends/{friendId}"),
+        UNFRIEND("DELETE /users/{id}/friends/{friendId}");
+
+        final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    /**
+     * Запрос вместе с операцией, по которой он учитывается в отчёте.
+     */
+    record Call(Operation operation, HttpRequest request) {
+    }
+
+    private final URI base;
+    private final int maxUserId;
+    private final int maxFilmId;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final PairPool likes = new PairPool();
+    private final PairPool friends = new PairPool();
+
+    Scenario(URI base, Map<Operation, Integer> mix, int maxUserId, int maxFilmId) {
+        this.base = base;
+        this.maxUserId = maxUserId;
+        this.maxFilmId = maxFilmId;
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма весов сценария должна быть положительной");
+        }
+    }
+
+    /**
+     * Разбирает смесь вида {@code film=30,popular=15,like=10}; операции без веса не выполняются.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Некорректный элемент сценария: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес не может быть отрицательным: " + part);
+            }
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        return weights;
+    }
+
+    Call next(SplittableRandom random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= point) {
+            index++;
+        }
+        Operation operation = operations[index];
+        int user = random.nextInt(maxUserId) + 1;
+        int film = random.nextInt(maxFilmId) + 1;
+        int otherUser = random.nextInt(maxUserId) + 1;
+        if (operation == Operation.UNLIKE) {
+            long pair = likes.take(random);
+            if (pair < 0) {
+                operation = Operation.LIKE;
+            } else {
+                film = PairPool.first(pair);
+                user = PairPool.second(pair);
+            }
+        } else if (operation == Operation.UNFRIEND) {
+            long pair = friends.take(random);
+            if (pair < 0) {
+                operation = Operation.FRIEND;
+            } else {
+                user = PairPool.first(pair);
+                otherUser = PairPool.second(pair);
+            }
+        }
+        if (operation == Operation.FRIEND && otherUser == user) {
+            otherUser = otherUser % maxUserId + 1;
+        }
+        if (operation == Operation.LIKE) {
+            likes.add(film, user);
+        } else if (operation == Operation.FRIEND && otherUser != user) {
+            friends.add(user, otherUser);
+        }
+        HttpRequest.Builder request = switch (operation) {
+            case FILM -> get("/films/" + film);
+            case USER -> get("/users/" + user);
+            case POPULAR -> get("/films/popular?count=10");
+            case FRIENDS -> get("/users/" + user + "/friends");
+            case COMMON -> get("/users/" + user + "/friends/common/" + otherUser);
+            case LIKE -> builder("/films/" + film + "/like/" + user).PUT(HttpRequest.BodyPublishers.noBody());
+            case UNLIKE -> builder("/films/" + film + "/like/" + user).DELETE();
+            case FRIEND -> builder("/users/" + user + "/friends/" + otherUser).PUT(HttpRequest.BodyPublishers.noBody());
+            case UNFRIEND -> builder("/users/" + user + "/friends/" + otherUser).DELETE();
+        };
+        return new Call(operation, request.build());
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return builder(path).GET();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+    }
+
+    /**
+     * Пары id, добавленные сценарием и ещё не снятые, с выбором случайной пары за O(1).
+     */
+    private static final class PairPool {
+        private final List<Long> pairs = new ArrayList<>();
+        private final Set<Long> present = new HashSet<>();
+
+        static int first(long pair) {
+            return (int) (pair >>> 32);
+        }
+
+        static int second(long pair) {
+            return (int) pair;
+        }
+
+        void add(int first, int second) {
+            long pair = ((long) first << 32) | second;
+            if (present.add(pair)) {
+                pairs.add(pair);
+            }
+        }
+
+        /**
+         * Извлекает случайную пару или возвращает -1, если пар нет.
+         */
+        long take(SplittableRandom random) {
+            if (pairs.isEmpty()) {
+                return -1;
+            }
+            int index = random.nextInt(pairs.size());
+            long pair = pairs.get(index);
+            pairs.set(index, pairs.get(pairs.size() - 1));
+            pairs.remove(pairs.size() - 1);
+            present.remove(pair);
+            return pair;
+        }
+    }
+}
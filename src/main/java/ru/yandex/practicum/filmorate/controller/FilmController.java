@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
+import ru.yandex.practicum.filmorate.repository.cache.BoundedCache;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.*;
@@ -17,17 +25,39 @@ import java.util.*;
 @Validated
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(FilmController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Collection<Film> getAll() {
-        log.info("Сформирован запрос на получение всех фильмов");
-        return filmService.getAll();
+    public ResponseEntity<List<Film>> getAll(@RequestParam(defaultValue = "0") int after,
+                                             @Positive @RequestParam(required = false) Integer limit,
+                                             @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            log.info("Сформирован запрос на получение всех фильмов");
+            return ResponseEntity.ok(filmService.getAll());
+        }
+        log.info("Сформирован запрос на получение фильмов после id={}, limit={}", after, limit);
+        CursorPage<Film> page = filmService.getPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNext()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Сформирован запрос на выгрузку всех фильмов в формате NDJSON");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.of(objectMapper, filmService::streamAll));
     }
 
     @GetMapping("/{id}")
@@ -42,6 +72,12 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody List<Film> items) {
+        log.info("Получен запрос на пакетное создание {} фильмов", items.size());
+        return filmService.createAll(items);
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         log.info("Получен запрос на обновление фильма film={}", film);
@@ -66,4 +102,16 @@ public class FilmController {
         return filmService.getPopularFilm(count);
     }
 
+    @GetMapping("/{id}/rank")
+    public FilmRank getRank(@PathVariable int id) {
+        log.info("Получен запрос на место в рейтинге фильма с id={}", id);
+        return filmService.getRank(id);
+    }
+
+    @GetMapping("/cache/stats")
+    public BoundedCache.Stats getCacheStats() {
+        log.info("Получен запрос на статистику кэша фильмов");
+        return filmService.getCacheStats();
+    }
+
 }
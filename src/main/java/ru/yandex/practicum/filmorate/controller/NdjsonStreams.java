@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Ответ в формате NDJSON: каждый объект пишется отдельной строкой сразу после того, как он прочитан из хранилища.
+ */
+final class NdjsonStreams {
+    private NdjsonStreams() {
+    }
+
+    static <T> StreamingResponseBody of(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer();
+        return out -> {
+            boolean[] first = {true};
+            try {
+                source.accept(item -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(item));
+                        out.write('\n');
+                        if (first[0]) {
+                            out.flush();
+                            first[0] = false;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataRegistry;
+
+import java.util.Map;
+
+/**
+ * Справочники жанров и рейтингов в {@code /actuator/referencedata}: GET показывает размер снимка,
+ * POST перечитывает справочники из базы. Кэш фильмов при этом очищается, иначе закэшированные фильмы
+ * отдавали бы жанры и рейтинги из старого снимка.
+ */
+@Component
+@Endpoint(id = "referencedata")
+public class ReferenceDataEndpoint {
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataEndpoint.class);
+
+    private final ReferenceDataRegistry referenceData;
+    private final FilmCache filmCache;
+
+    public ReferenceDataEndpoint(ReferenceDataRegistry referenceData, FilmCache filmCache) {
+        this.referenceData = referenceData;
+        this.filmCache = filmCache;
+    }
+
+    @ReadOperation
+    public Map<String, Integer> summary() {
+        return Map.of("genres", referenceData.getGenres().size(), "ratings", referenceData.getRatings().size());
+    }
+
+    @WriteOperation
+    public Map<String, Integer> reload() {
+        referenceData.reload();
+        filmCache.clear();
+        log.info("Справочники перезагружены по запросу, кэш фильмов очищен");
+        return summary();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.repository.jdbc.SqlStatementStats;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * Считает SQL-запросы и время в базе на каждый HTTP-запрос и предупреждает в лог, если превышен
+ * бюджет {@code filmorate.sql.stats.max-statements} или {@code filmorate.sql.stats.max-time}:
+ * так видны N+1 и похожие регрессии. При {@code filmorate.sql.stats.headers=true} (режим отладки)
+ * итог отдаётся в заголовках {@value #STATEMENTS_HEADER} и {@value #TIME_HEADER}. Для ответов
+ * с телом заголовки ставит {@link SqlStatsHeaderAdvice} перед записью тела, для остальных —
+ * этот фильтр, пока ответ не отправлен. Потоковые ответы (NDJSON) пишутся в другом потоке,
+ * и их запросы не учитываются.
+ */
+@Component
+@Slf4j
+public class SqlStatsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private final boolean enabled;
+    private final boolean headers;
+    private final int maxStatements;
+    private final long maxTimeNanos;
+
+    public SqlStatsFilter(@Value("${filmorate.sql.stats.enabled:true}") boolean enabled,
+                          @Value("${filmorate.sql.stats.headers:false}") boolean headers,
+                          @Value("${filmorate.sql.stats.max-statements:10}") int maxStatements,
+                          @Value("${filmorate.sql.stats.max-time:PT0.5S}") Duration maxTime) {
+        this.enabled = enabled;
+        this.headers = headers;
+        this.maxStatements = maxStatements;
+        this.maxTimeNanos = maxTime.toNanos();
+    }
+
+    static void writeHeaders(SqlStatementStats.Snapshot snapshot, BiConsumer<String, String> header) {
+        header.accept(STATEMENTS_HEADER, Integer.toString(snapshot.statements()));
+        header.accept(TIME_HEADER, Long.toString(snapshot.millis()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementStats.Snapshot snapshot;
+        try (SqlStatementStats.Scope scope = SqlStatementStats.open()) {
+            chain.doFilter(request, response);
+            snapshot = scope.snapshot();
+        }
+        if (headers && !response.isCommitted()) {
+            writeHeaders(snapshot, response::setHeader);
+        }
+        if (snapshot.statements() > maxStatements || snapshot.nanos() > maxTimeNanos) {
+            log.warn("{} {} выполнил SQL-запросов: {} за {} мс при бюджете {} запросов и {} мс",
+                    request.getMethod(), request.getRequestURI(), snapshot.statements(), snapshot.millis(),
+                    maxStatements, Duration.ofNanos(maxTimeNanos).toMillis());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {}: SQL-запросов {} за {} мс", request.getMethod(), request.getRequestURI(),
+                    snapshot.statements(), snapshot.millis());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.repository.jdbc.SqlStatementStats;
+
+/**
+ * Ставит заголовки {@link SqlStatsFilter} перед записью тела ответа: после записи ответ может
+ * быть уже отправлен, и фильтр их добавить не успеет.
+ */
+@RestControllerAdvice
+public class SqlStatsHeaderAdvice implements ResponseBodyAdvice<Object> {
+    private final boolean headers;
+
+    public SqlStatsHeaderAdvice(@Value("${filmorate.sql.stats.enabled:true}") boolean enabled,
+                                @Value("${filmorate.sql.stats.headers:false}") boolean headers) {
+        this.headers = enabled && headers;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return headers;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatementStats.Snapshot snapshot = SqlStatementStats.current();
+        if (snapshot != null) {
+            SqlStatsFilter.writeHeaders(snapshot, response.getHeaders()::set);
+        }
+        return body;
+    }
+}
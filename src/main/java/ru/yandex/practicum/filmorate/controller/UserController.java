@@ -1,31 +1,62 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
-import java.util.Collection;
 import java.util.List;
 
 @RestController
 @RequestMapping("/users")
+@Validated
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Collection<User> getAll() {
-        log.info("Сформирован запрос на получение всех пользователей");
-        return userService.getAll();
+    public ResponseEntity<List<User>> getAll(@RequestParam(defaultValue = "0") int after,
+                                             @Positive @RequestParam(required = false) Integer limit,
+                                             @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            log.info("Сформирован запрос на получение всех пользователей");
+            return ResponseEntity.ok(userService.getAll());
+        }
+        log.info("Сформирован запрос на получение пользователей после id={}, limit={}", after, limit);
+        return toResponse(userService.getPage(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Сформирован запрос на выгрузку всех пользователей в формате NDJSON");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(NdjsonStreams.of(objectMapper, userService::streamAll));
     }
 
     @GetMapping("{id}")
@@ -40,6 +71,12 @@ public class UserController {
         return userService.create(user);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody List<User> items) {
+        log.info("Получен запрос на пакетное создание {} пользователей", items.size());
+        return userService.createAll(items);
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
         log.info("Получен запрос на обновление пользователя user={}", user);
@@ -65,9 +102,29 @@ public class UserController {
     }
 
     @GetMapping("{id}/friends")
-    public List<User> getFriendsThisUser(@PathVariable("id") int id) {
-        log.info("Получен запрос на выборку друзей пользователя с id={}", id);
-        return userService.getFriendsThisUser(id);
+    public ResponseEntity<List<User>> getFriendsThisUser(@PathVariable("id") int id,
+                                                         @RequestParam(defaultValue = "0") int after,
+                                                         @Positive @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            log.info("Получен запрос на выборку друзей пользователя с id={}", id);
+            return ResponseEntity.ok(userService.getFriendsThisUser(id));
+        }
+        log.info("Получен запрос на выборку друзей пользователя с id={} после id={}, limit={}", id, after, limit);
+        return toResponse(userService.getFriendsPage(id, after, limit));
+    }
+
+    @GetMapping("{id}/friends/count")
+    public int getFriendsCount(@PathVariable("id") int id) {
+        log.info("Получен запрос на количество друзей пользователя с id={}", id);
+        return userService.getFriendsCount(id);
+    }
+
+    @GetMapping("{id}/friends/suggestions")
+    public List<FriendSuggestion> getFriendSuggestions(@PathVariable("id") int id,
+                                                       @Positive @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Получен запрос на рекомендации друзей для пользователя с id={}, limit={}", id, limit);
+        return userService.getFriendSuggestions(id, limit);
     }
 
     @GetMapping("{id}/friends/common/{otherId}")
@@ -75,4 +132,25 @@ public class UserController {
         log.info("Получен запрос на выборку общих друзей пользователей с id={} и id={}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable("id") int id,
+                                         @Positive @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Получен запрос на рекомендации фильмов для пользователя с id={}, limit={}", id, limit);
+        return filmService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/cache/stats")
+    public BoundedCache.Stats getCacheStats() {
+        log.info("Получен запрос на статистику кэша пользователей");
+        return userService.getCacheStats();
+    }
+
+    private ResponseEntity<List<User>> toResponse(CursorPage<User> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNext()));
+        }
+        return response.body(page.getItems());
+    }
 }
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Профиль {@code generate}: заполняет базу синтетическими данными {@link SyntheticDataset}
+ * и завершает приложение. Размеры и зерно задаются свойствами {@code filmorate.generator.*},
+ * например {@code --spring.profiles.active=prod,generate --filmorate.generator.users=1000000}.
+ */
+@Component
+@Profile("generate")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigurableApplicationContext context;
+    private final SyntheticDataset.Settings settings;
+
+    public DatasetGeneratorRunner(JdbcTemplate jdbcTemplate, ConfigurableApplicationContext context,
+                                  @Value("${filmorate.generator.users:100000}") int users,
+                                  @Value("${filmorate.generator.films:20000}") int films,
+                                  @Value("${filmorate.generator.likes-per-user:20}") double likesPerUser,
+                                  @Value("${filmorate.generator.friends-per-user:10}") int friendsPerUser,
+                                  @Value("${filmorate.generator.popularity-exponent:1.0}") double popularityExponent,
+                                  @Value("${filmorate.generator.seed:42}") long seed,
+                                  @Value("${filmorate.generator.rows-per-statement:500}") int rowsPerStatement,
+                                  @Value("${filmorate.generator.statements-per-batch:20}") int statementsPerBatch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.context = context;
+        this.settings = new SyntheticDataset.Settings(users, films, likesPerUser, friendsPerUser, popularityExponent,
+                seed, rowsPerStatement, statementsPerBatch);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        new SyntheticDataset(jdbcTemplate, settings).generate();
+        System.exit(SpringApplication.exit(context));
+    }
+}
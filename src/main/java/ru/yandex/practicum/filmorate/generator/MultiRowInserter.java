@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Вставка строк многострочными {@code INSERT ... VALUES (...), (...)}: строки копятся в команды
+ * по {@code rowsPerStatement}, команды уходят JDBC-пакетами по {@code statementsPerBatch}.
+ * Экземпляр не потокобезопасен.
+ */
+final class MultiRowInserter {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final List<String> columns;
+    private final int rowsPerStatement;
+    private final int statementsPerBatch;
+    private final String fullStatement;
+    private final List<Object[]> batch = new ArrayList<>();
+    private Object[] values;
+    private int filled;
+    private long rows;
+
+    MultiRowInserter(JdbcTemplate jdbcTemplate, String table, List<String> columns, int rowsPerStatement,
+                     int statementsPerBatch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.columns = columns;
+        this.rowsPerStatement = rowsPerStatement;
+        this.statementsPerBatch = statementsPerBatch;
+        this.fullStatement = statement(rowsPerStatement);
+        this.values = new Object[rowsPerStatement * columns.size()];
+    }
+
+    void add(Object... row) {
+        if (row.length != columns.size()) {
+            throw new IllegalArgumentException("Ожидалось значений: " + columns.size() + ", передано: " + row.length);
+        }
+        System.arraycopy(row, 0, values, filled * row.length, row.length);
+        filled++;
+        rows++;
+        if (filled == rowsPerStatement) {
+            batch.add(values);
+            values = new Object[values.length];
+            filled = 0;
+            if (batch.size() == statementsPerBatch) {
+                flushBatch();
+            }
+        }
+    }
+
+    /**
+     * Отправляет всё накопленное, включая неполную последнюю команду.
+     */
+    void flush() {
+        flushBatch();
+        if (filled > 0) {
+            jdbcTemplate.update(statement(filled), Arrays.copyOf(values, filled * columns.size()));
+            filled = 0;
+        }
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    private void flushBatch() {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(fullStatement, batch);
+            batch.clear();
+        }
+    }
+
+    private String statement(int rowCount) {
+        String row = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES "
+                + String.join(", ", Collections.nCopies(rowCount, row));
+    }
+}
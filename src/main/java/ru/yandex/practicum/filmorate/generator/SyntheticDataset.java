@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Детерминированный генератор большого набора данных «как в продакшене».
+ * <ul>
+ *     <li>популярность фильмов — распределение Ципфа по рангам, ранги случайно разложены по id;</li>
+ *     <li>число лайков пользователя — распределение Парето с показателем 2 и заданным средним;</li>
+ *     <li>дружба — модель предпочтительного присоединения Барабаши — Альберт, поэтому степени
+ *     графа распределены по степенному закону; связи взаимные и подтверждённые.</li>
+ * </ul>
+ * Строки дописываются после уже существующих id многострочными вставками; одинаковые настройки
+ * и одинаковое исходное состояние базы дают одинаковый результат.
+ */
+public class SyntheticDataset {
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataset.class);
+    private static final int CONFIRMED_STATUS = 2;
+    private static final double ACTIVITY_EXPONENT = 2;
+    private static final int MAX_GENRES_PER_FILM = 3;
+    private static final LocalDate FIRST_BIRTHDAY = LocalDate.of(1950, 1, 1);
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(1950, 1, 1);
+    private static final int DATE_RANGE_DAYS = 60 * 365;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Settings settings;
+
+    /**
+     * @param likesPerUser       среднее число лайков на пользователя
+     * @param friendsPerUser     среднее число друзей пользователя
+     * @param popularityExponent показатель распределения Ципфа для популярности фильмов
+     */
+    public record Settings(int users, int films, double likesPerUser, int friendsPerUser, double popularityExponent,
+                           long seed, int rowsPerStatement, int statementsPerBatch) {
+    }
+
+    public record Summary(long users, long films, long filmGenres, long likes, long friends, long millis) {
+        public long rows() {
+            return users + films + filmGenres + likes + friends;
+        }
+    }
+
+    public SyntheticDataset(JdbcTemplate jdbcTemplate, Settings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = settings;
+    }
+
+    public Summary generate() {
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(settings.seed());
+        SplittableRandom userRandom = random.split();
+        SplittableRandom filmRandom = random.split();
+        SplittableRandom likeRandom = random.split();
+        SplittableRandom friendRandom = random.split();
+        int firstUserId = nextId("users", "user_id");
+        int firstFilmId = nextId("films", "film_id");
+
+        long users = insertUsers(firstUserId, userRandom);
+        long[] films = insertFilms(firstFilmId, filmRandom);
+        long likes = settings.films() > 0 ? insertLikes(firstUserId, firstFilmId, likeRandom) : 0;
+        long friends = insertFriends(firstUserId, friendRandom);
+        jdbcTemplate.update("""
+                MERGE INTO films (film_id, likes) KEY (film_id)
+                SELECT film_id, COUNT(*) FROM film_like WHERE film_id >= ? GROUP BY film_id
+                """, firstFilmId);
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + nextId("users", "user_id"));
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + nextId("films", "film_id"));
+
+        Summary summary = new Summary(users, films[0], films[1], likes, friends,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        log.info("Сгенерировано строк: {} за {} мс (пользователей {}, фильмов {}, жанров фильмов {}, лайков {}, "
+                        + "связей дружбы {})", summary.rows(), summary.millis(), summary.users(), summary.films(),
+                summary.filmGenres(), summary.likes(), summary.friends());
+        return summary;
+    }
+
+    private long insertUsers(int firstUserId, SplittableRandom random) {
+        MultiRowInserter users = inserter("users", List.of("user_id", "name", "email", "login", "birthday"));
+        for (int i = 0; i < settings.users(); i++) {
+            int id = firstUserId + i;
+            users.add(id, "Пользователь " + id, "user" + id + "@example.com", "user" + id,
+                    Date.valueOf(FIRST_BIRTHDAY.plusDays(random.nextInt(DATE_RANGE_DAYS))));
+        }
+        users.flush();
+        log.info("Добавлено пользователей: {}", users.rows());
+        return users.rows();
+    }
+
+    private long[] insertFilms(int firstFilmId, SplittableRandom random) {
+        List<Integer> genreIds = jdbcTemplate.queryForList("SELECT genre_id FROM genres ORDER BY genre_id",
+                Integer.class);
+        List<Integer> ratingIds = jdbcTemplate.queryForList("SELECT rating_id FROM rating ORDER BY rating_id",
+                Integer.class);
+        MultiRowInserter films = inserter("films",
+                List.of("film_id", "film_name", "description", "duration", "release_date", "rating_id"));
+        for (int i = 0; i < settings.films(); i++) {
+            int id = firstFilmId + i;
+            films.add(id, "Фильм " + id, "Описание фильма " + id, 60 + random.nextInt(121),
+                    Date.valueOf(FIRST_RELEASE.plusDays(random.nextInt(DATE_RANGE_DAYS))),
+                    ratingIds.get(random.nextInt(ratingIds.size())));
+        }
+        films.flush();
+
+        MultiRowInserter filmGenres = inserter("film_genre", List.of("film_id", "genre_id"));
+        int[] genres = genreIds.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < settings.films(); i++) {
+            int id = firstFilmId + i;
+            int genreCount = Math.min(genres.length, 1 + random.nextInt(MAX_GENRES_PER_FILM));
+            for (int g = 0; g < genreCount; g++) {
+                int pick = g + random.nextInt(genres.length - g);
+                int genre = genres[pick];
+                genres[pick] = genres[g];
+                genres[g] = genre;
+                filmGenres.add(id, genre);
+            }
+        }
+        filmGenres.flush();
+        log.info("Добавлено фильмов: {}, жанров фильмов: {}", films.rows(), filmGenres.rows());
+        return new long[]{films.rows(), filmGenres.rows()};
+    }
+
+    private long insertLikes(int firstUserId, int firstFilmId, SplittableRandom random) {
+        ZipfDistribution popularity = new ZipfDistribution(settings.films(), settings.popularityExponent());
+        int[] filmByRank = new int[settings.films()];
+        for (int i = 0; i < filmByRank.length; i++) {
+            filmByRank[i] = firstFilmId + i;
+        }
+        for (int i = filmByRank.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int film = filmByRank[i];
+            filmByRank[i] = filmByRank[j];
+            filmByRank[j] = film;
+        }
+        int maxLikes = Math.max(1, settings.films() / 10);
+        double minLikes = settings.likesPerUser() * (ACTIVITY_EXPONENT - 1) / ACTIVITY_EXPONENT;
+        MultiRowInserter likes = inserter("film_like", List.of("user_id", "film_id"));
+        Set<Integer> liked = new HashSet<>();
+        for (int i = 0; i < settings.users(); i++) {
+            double pareto = minLikes / Math.pow(1 - random.nextDouble(), 1 / ACTIVITY_EXPONENT);
+            int count = (int) Math.min(maxLikes, Math.round(pareto));
+            liked.clear();
+            while (liked.size() < count) {
+                int filmId = filmByRank[popularity.sample(random) - 1];
+                if (liked.add(filmId)) {
+                    likes.add(firstUserId + i, filmId);
+                }
+            }
+        }
+        likes.flush();
+        log.info("Добавлено лайков: {}", likes.rows());
+        return likes.rows();
+    }
+
+    private long insertFriends(int firstUserId, SplittableRandom random) {
+        int users = settings.users();
+        int edgesPerUser = Math.max(1, settings.friendsPerUser() / 2);
+        int[] endpoints = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * edgesPerUser * users)];
+        int endpointCount = 0;
+        int[] targets = new int[edgesPerUser];
+        MultiRowInserter friends = inserter("friends", List.of("user_id", "friend_id", "friend_status_id"));
+        for (int user = 1; user < users; user++) {
+            int targetCount = Math.min(user, edgesPerUser);
+            for (int t = 0; t < targetCount; t++) {
+                int target;
+                do {
+                    target = user <= edgesPerUser ? t : endpoints[random.nextInt(endpointCount)];
+                } while (contains(targets, t, target));
+                targets[t] = target;
+            }
+            for (int t = 0; t < targetCount; t++) {
+                friends.add(firstUserId + user, firstUserId + targets[t], CONFIRMED_STATUS);
+                friends.add(firstUserId + targets[t], firstUserId + user, CONFIRMED_STATUS);
+                if (endpointCount + 2 <= endpoints.length) {
+                    endpoints[endpointCount++] = user;
+                    endpoints[endpointCount++] = targets[t];
+                }
+            }
+        }
+        friends.flush();
+        log.info("Добавлено связей дружбы: {}", friends.rows());
+        return friends.rows();
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int nextId(String table, String column) {
+        Integer max = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") FROM " + table, Integer.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private MultiRowInserter inserter(String table, List<String> columns) {
+        return new MultiRowInserter(jdbcTemplate, table, columns, settings.rowsPerStatement(),
+                settings.statementsPerBatch());
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Распределение Ципфа на рангах 1..n: вероятность ранга r пропорциональна {@code 1 / r^exponent}.
+ * Выборка — двоичный поиск по накопленным весам, память O(n).
+ */
+final class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Число рангов должно быть положительным: " + n);
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+    }
+
+    /**
+     * Ранг от 1 до n.
+     */
+    int sample(SplittableRandom random) {
+        double point = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, point);
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймер {@code filmorate.method} (частота, перцентили, ошибки по тегу {@code outcome})
+ * и распределение {@code filmorate.method.rows} (сколько строк вернул метод) на каждый метод.
+ * Метры создаются при первом вызове метода и дальше берутся из карты по {@link Method},
+ * поэтому на горячем пути нет построения тегов и поиска в реестре.
+ */
+final class MethodMetricsInterceptor implements MethodInterceptor {
+    static final String TIMER = "filmorate.method";
+    static final String ROWS = "filmorate.method.rows";
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final boolean histogram;
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    MethodMetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider, boolean histogram) {
+        this.registryProvider = registryProvider;
+        this.histogram = histogram;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMeters methodMeters = meters.get(invocation.getMethod());
+        if (methodMeters == null) {
+            methodMeters = meters.computeIfAbsent(invocation.getMethod(), method -> new MethodMeters(registry(),
+                    ClassUtils.getUserClass(invocation.getThis()), method, histogram));
+        }
+        long started = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            methodMeters.error(e).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        methodMeters.success.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (methodMeters.rows != null) {
+            methodMeters.rows.record(rows(result));
+        }
+        return result;
+    }
+
+    /**
+     * Реестр берётся при первом вызове, а не при создании пост-процессора: иначе реестр и всё,
+     * от чего он зависит, создавались бы раньше остальных пост-процессоров.
+     */
+    private MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            current = registryProvider.getObject();
+            registry = current;
+        }
+        return current;
+    }
+
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof CursorPage<?> page) {
+            return page.getItems() == null ? 0 : page.getItems().size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    private static final class MethodMeters {
+        private final MeterRegistry registry;
+        private final Tags tags;
+        private final boolean histogram;
+        private final Timer success;
+        private final DistributionSummary rows;
+        private final Map<Class<?>, Timer> errors = new ConcurrentHashMap<>();
+
+        MethodMeters(MeterRegistry registry, Class<?> targetClass, Method method, boolean histogram) {
+            this.registry = registry;
+            this.histogram = histogram;
+            this.tags = Tags.of("layer", MethodMetricsPostProcessor.layer(targetClass),
+                    "class", targetClass.getSimpleName(), "method", method.getName());
+            this.success = timer("success", "none");
+            Class<?> returnType = method.getReturnType();
+            this.rows = returnType.isPrimitive() || Number.class.isAssignableFrom(returnType)
+                    || returnType == Boolean.class || returnType == Void.class ? null
+                    : DistributionSummary.builder(ROWS)
+                    .description("Число строк, возвращённых методом")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        Timer error(Throwable e) {
+            return errors.computeIfAbsent(e.getClass(), type -> timer("error", type.getSimpleName()));
+        }
+
+        private Timer timer(String outcome, String exception) {
+            return Timer.builder(TIMER)
+                    .description("Время выполнения методов хранилищ и сервисов")
+                    .tags(tags)
+                    .tags("outcome", outcome, "exception", exception)
+                    .publishPercentileHistogram(histogram)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+    }
+}
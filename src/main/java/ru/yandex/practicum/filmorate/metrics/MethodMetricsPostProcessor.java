@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.GenreStorage;
+import ru.yandex.practicum.filmorate.repository.RatingStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Навешивает {@link MethodMetricsInterceptor} на публичные методы хранилищ и сервисов.
+ * При {@code filmorate.metrics.methods.enabled=false} бины не оборачиваются вовсе, так что
+ * выключенные метрики не стоят ничего: вызовы идут напрямую, как без этого класса.
+ * Если бин уже проксирован (например, ради {@code @Transactional}), перехватчик добавляется
+ * первым в существующий прокси и учитывает в том числе время транзакции.
+ */
+@Component
+public class MethodMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+    private static final Logger log = LoggerFactory.getLogger(MethodMetricsPostProcessor.class);
+    private static final List<Class<?>> STORAGES =
+            List.of(FilmStorage.class, UserStorage.class, GenreStorage.class, RatingStorage.class);
+
+    public MethodMetricsPostProcessor(@Value("${filmorate.metrics.methods.enabled:true}") boolean enabled,
+                                      @Value("${filmorate.metrics.methods.histogram:true}") boolean histogram,
+                                      ObjectProvider<MeterRegistry> registry) {
+        if (enabled) {
+            this.advisor = new DefaultPointcutAdvisor(new LayerPointcut(),
+                    new MethodMetricsInterceptor(registry, histogram));
+            setProxyTargetClass(true);
+            setBeforeExistingAdvisors(true);
+            log.info("Включены метрики методов хранилищ и сервисов, гистограммы: {}", histogram);
+        }
+    }
+
+    /**
+     * Слой, к которому относится класс бина: {@code storage}, {@code service} или {@code null}.
+     */
+    static String layer(Class<?> type) {
+        for (Class<?> storage : STORAGES) {
+            if (storage.isAssignableFrom(type)) {
+                return "storage";
+            }
+        }
+        return AnnotatedElementUtils.hasAnnotation(type, Service.class) ? "service" : null;
+    }
+
+    private static final class LayerPointcut extends StaticMethodMatcherPointcut {
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            int modifiers = method.getModifiers();
+            return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers)
+                    && method.getDeclaringClass() != Object.class && layer(targetClass) != null;
+        }
+    }
+}
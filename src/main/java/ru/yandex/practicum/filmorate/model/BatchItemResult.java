@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат пакетной загрузки для одного элемента запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Integer id;
+    private Status status;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    public static BatchItemResult created(int index, int id) {
+        return new BatchItemResult(index, id, Status.CREATED, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, null, Status.FAILED, error);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Страница выборки по курсору: элементы и id, после которого начинается следующая страница.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private Integer next;
+
+    /**
+     * Собирает страницу из выборки размером limit + 1: лишняя строка означает, что следующая страница есть.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, ToIntFunction<T> idExtractor) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, idExtractor.applyAsInt(items.get(limit - 1)));
+    }
+}
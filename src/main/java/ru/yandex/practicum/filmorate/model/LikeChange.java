@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Отложенная установка (liked = true) или снятие лайка пользователя с фильма.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeChange {
+    private int filmId;
+    private int userId;
+    private boolean liked;
+}
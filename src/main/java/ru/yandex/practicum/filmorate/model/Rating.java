@@ -1,15 +1,22 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Рейтинг MPA из справочника. Неизменяемый: один экземпляр из {@code ReferenceDataRegistry} делят все фильмы и кэши.
+ */
+@Value
 public class Rating {
-    private int id;
+    int id;
     @NotBlank(message = "Название рейтинга не может быть пустым")
-    private String name;
+    String name;
+
+    @JsonCreator
+    public Rating(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
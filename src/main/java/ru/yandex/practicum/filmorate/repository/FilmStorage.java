@@ -1,23 +1,48 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<BatchItemResult> createAll(List<Film> films);
+
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film update(Film film);
 
     Film findById(int filmId);
 
+    boolean existsById(int filmId);
+
+    List<Film> findByIds(Collection<Integer> filmIds);
+
     Film addLikeFilm(int filmId, int userId);
 
     void checkFieldsFilm(Film film);
 
     void deleteLikeFilm(Integer id, Integer userId);
 
+    boolean isLiked(int filmId, int userId);
+
+    Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes);
+
     List<Film> getPopularFilm(int count);
+
+    List<Film> getRecommendations(int userId, int limit);
+
+    int reconcileLikes();
+
+    Map<Integer, Integer> getLikesCount();
 }
@@ -1,12 +1,17 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User create(User user);
 
+    List<BatchItemResult> createAll(List<User> users);
+
     void delete(int userID);
 
     void validateEmailFormat(User user);
@@ -15,13 +20,25 @@ public interface UserStorage {
 
     User findById(int userId);
 
+    boolean existsById(int userId);
+
     void addFriends(Integer userId, Integer friendId);
 
     void deleteFriends(Integer userId, Integer friendId);
 
     List<User> getFriendsThisUser(Integer userId);
 
+    List<User> getFriendsPage(int userId, int afterId, int limit);
+
+    int getFriendsCount(int userId);
+
     List<User> getCommonFriends(Integer userId, Integer otherId);
 
+    List<FriendSuggestion> getFriendSuggestions(int userId, int limit);
+
     List<User> getAll();
+
+    List<User> getPage(int afterId, int limit);
+
+    void streamAll(Consumer<User> consumer);
 }
@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ограниченный по суммарному весу кэш с вытеснением LRU или LFU и временем жизни записей.
+ * Загрузка из хранилища идёт в два шага: {@link #beginLoad} выдаёт токен, {@link #completeLoad}
+ * кладёт значение только если с тех пор ключ не инвалидировали. Так чтение, начатое до обновления,
+ * не вернёт в кэш устаревшую запись.
+ */
+public class BoundedCache<K, V> {
+    public enum Policy { LRU, LFU }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long expiresAt;
+        private int frequency = 1;
+
+        private Entry(V value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, long weight, double hitRatio) {
+    }
+
+    private final Policy policy;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToIntFunction<V> weigher;
+    private final LongSupplier ticker;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final TreeMap<Integer, LinkedHashSet<K>> frequencies = new TreeMap<>();
+    private final Map<K, Long> pendingLoads = new HashMap<>();
+    private long nextToken;
+    private long totalWeight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(Policy policy, long maxWeight, long ttlNanos, ToIntFunction<V> weigher) {
+        this(policy, maxWeight, ttlNanos, weigher, System::nanoTime);
+    }
+
+    BoundedCache(Policy policy, long maxWeight, long ttlNanos, ToIntFunction<V> weigher, LongSupplier ticker) {
+        this.policy = policy;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttlNanos;
+        this.weigher = weigher;
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, policy == Policy.LRU);
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (ttlNanos > 0 && ticker.getAsLong() - entry.expiresAt >= 0) {
+                remove(key, entry);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            if (policy == Policy.LFU) {
+                moveToFrequency(key, entry.frequency, entry.frequency + 1);
+                entry.frequency++;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long beginLoad(K key) {
+        lock.lock();
+        try {
+            long token = ++nextToken;
+            pendingLoads.put(key, token);
+            return token;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void completeLoad(K key, long token, V value) {
+        int weight = weigher.applyAsInt(value);
+        lock.lock();
+        try {
+            if (pendingLoads.remove(key, token)) {
+                store(key, value, weight);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Запись в обход загрузки: значение уже известно вызывающему (write-through).
+     * Незавершённые загрузки ключа при этом отменяются — они читали данные до записи.
+     */
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        lock.lock();
+        try {
+            pendingLoads.remove(key);
+            store(key, value, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancelLoad(K key, long token) {
+        lock.lock();
+        try {
+            pendingLoads.remove(key, token);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            pendingLoads.remove(key);
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                remove(key, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll(Collection<K> keys) {
+        lock.lock();
+        try {
+            keys.forEach(this::invalidate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            pendingLoads.clear();
+            entries.clear();
+            frequencies.clear();
+            totalWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long requests = hitCount + missCount;
+            return new Stats(hitCount, missCount, evictions.sum(), entries.size(), totalWeight,
+                    requests == 0 ? 0 : (double) hitCount / requests);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(K key, V value, int weight) {
+        Entry<V> previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        if (weight > maxWeight) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, weight, ticker.getAsLong() + ttlNanos);
+        entries.put(key, entry);
+        totalWeight += weight;
+        if (policy == Policy.LFU) {
+            frequencies.computeIfAbsent(entry.frequency, f -> new LinkedHashSet<>()).add(key);
+        }
+        evictToFit();
+    }
+
+    private void evictToFit() {
+        while (totalWeight > maxWeight && !entries.isEmpty()) {
+            K victim;
+            if (policy == Policy.LFU) {
+                victim = frequencies.firstEntry().getValue().iterator().next();
+            } else {
+                Iterator<K> eldest = entries.keySet().iterator();
+                victim = eldest.next();
+            }
+            remove(victim, entries.get(victim));
+            evictions.increment();
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        totalWeight -= entry.weight;
+        if (policy == Policy.LFU) {
+            moveToFrequency(key, entry.frequency, 0);
+        }
+    }
+
+    private void moveToFrequency(K key, int from, int to) {
+        LinkedHashSet<K> bucket = frequencies.get(from);
+        if (bucket != null) {
+            bucket.remove(key);
+            if (bucket.isEmpty()) {
+                frequencies.remove(from);
+            }
+        }
+        if (to > 0) {
+            frequencies.computeIfAbsent(to, f -> new LinkedHashSet<>()).add(key);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Кэш изменяемых сущностей по id поверх {@link BoundedCache}. В кэше лежат копии и наружу отдаются
+ * копии. Инвалидация внутри транзакции повторяется после её завершения: иначе параллельное чтение
+ * могло бы закэшировать версию, которую транзакция ещё не зафиксировала или откатила.
+ */
+public abstract class EntityCache<V> {
+    private final boolean enabled;
+    private final BoundedCache<Integer, V> cache;
+
+    protected EntityCache(boolean enabled, BoundedCache.Policy policy, long maxWeight, Duration ttl) {
+        this.enabled = enabled;
+        this.cache = new BoundedCache<>(policy, maxWeight, ttl.toNanos(), this::weigh);
+    }
+
+    protected abstract V copy(V source);
+
+    protected abstract int weigh(V value);
+
+    public V get(int id, IntFunction<V> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        V cached = cache.get(id);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long token = cache.beginLoad(id);
+        V value;
+        try {
+            value = loader.apply(id);
+        } catch (RuntimeException e) {
+            cache.cancelLoad(id, token);
+            throw e;
+        }
+        cache.completeLoad(id, token, copy(value));
+        return value;
+    }
+
+    /**
+     * Возвращает найденные сущности в порядке {@code ids}; промахи загружаются одним вызовом {@code loader}.
+     */
+    public List<V> getAll(List<Integer> ids, Function<List<Integer>, Map<Integer, V>> loader) {
+        if (!enabled) {
+            return inOrder(ids, loader.apply(ids));
+        }
+        Map<Integer, V> found = new LinkedHashMap<>();
+        Map<Integer, Long> tokens = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            V cached = cache.get(id);
+            if (cached != null) {
+                found.put(id, copy(cached));
+            } else {
+                tokens.put(id, cache.beginLoad(id));
+            }
+        }
+        if (!tokens.isEmpty()) {
+            Map<Integer, V> loaded;
+            try {
+                loaded = loader.apply(new ArrayList<>(tokens.keySet()));
+            } catch (RuntimeException e) {
+                tokens.forEach(cache::cancelLoad);
+                throw e;
+            }
+            tokens.forEach((id, token) -> {
+                V value = loaded.get(id);
+                if (value == null) {
+                    cache.cancelLoad(id, token);
+                } else {
+                    cache.completeLoad(id, token, copy(value));
+                    found.put(id, value);
+                }
+            });
+        }
+        return inOrder(ids, found);
+    }
+
+    /**
+     * Write-through: кладёт только что записанное значение. Если транзакция не будет зафиксирована,
+     * запись снимается.
+     */
+    public void put(int id, V value) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(id, copy(value));
+        CacheTransactions.afterRollback(() -> cache.invalidate(id));
+    }
+
+    public void invalidate(int id) {
+        invalidateAll(List.of(id));
+    }
+
+    public void invalidateAll(Collection<Integer> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        List<Integer> keys = List.copyOf(ids);
+        cache.invalidateAll(keys);
+        CacheTransactions.afterCompletion(() -> cache.invalidateAll(keys));
+    }
+
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        cache.invalidateAll();
+        CacheTransactions.afterCompletion(cache::invalidateAll);
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private static <V> List<V> inOrder(List<Integer> ids, Map<Integer, V> values) {
+        List<V> result = new ArrayList<>(values.size());
+        for (Integer id : ids) {
+            V value = values.get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+
+/**
+ * Кэш фильмов перед {@code FilmDbStorage}. Вес записи оценивается по длине строк и числу жанров.
+ */
+@Component
+public class FilmCache extends EntityCache<Film> {
+    private static final int BASE_WEIGHT = 128;
+    private static final int GENRE_WEIGHT = 16;
+
+    public FilmCache(@Value("${filmorate.cache.films.enabled:true}") boolean enabled,
+                     @Value("${filmorate.cache.films.policy:LRU}") BoundedCache.Policy policy,
+                     @Value("${filmorate.cache.films.max-weight:8388608}") long maxWeight,
+                     @Value("${filmorate.cache.films.ttl:PT10M}") Duration ttl) {
+        super(enabled, policy, maxWeight, ttl);
+    }
+
+    @Override
+    protected Film copy(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(source.getMpa());
+        film.setGenres(new LinkedHashSet<>(source.getGenres()));
+        film.setLikes(source.getLikes());
+        return film;
+    }
+
+    @Override
+    protected int weigh(Film film) {
+        int weight = BASE_WEIGHT;
+        if (film.getName() != null) {
+            weight += 2 * film.getName().length();
+        }
+        if (film.getDescription() != null) {
+            weight += 2 * film.getDescription().length();
+        }
+        return weight + GENRE_WEIGHT * film.getGenres().size();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+
+/**
+ * Кэш пользователей перед {@code UserDbStorage}: заполняется при чтении и создании, очищается
+ * при изменении и удалении. Обновлённого пользователя в кэш не кладём: два параллельных обновления
+ * могут зафиксироваться в одном порядке, а попасть в кэш в другом, и устаревшая версия жила бы до TTL.
+ */
+@Component
+public class UserCache extends EntityCache<User> {
+    private static final int BASE_WEIGHT = 96;
+
+    public UserCache(@Value("${filmorate.cache.users.enabled:true}") boolean enabled,
+                     @Value("${filmorate.cache.users.policy:LRU}") BoundedCache.Policy policy,
+                     @Value("${filmorate.cache.users.max-weight:4194304}") long maxWeight,
+                     @Value("${filmorate.cache.users.ttl:PT10M}") Duration ttl) {
+        super(enabled, policy, maxWeight, ttl);
+    }
+
+    public void put(User user) {
+        put(user.getId(), user);
+    }
+
+    @Override
+    protected User copy(User source) {
+        return new User(source.getId(), source.getEmail(), source.getLogin(), source.getName(), source.getBirthday());
+    }
+
+    @Override
+    protected int weigh(User user) {
+        int weight = BASE_WEIGHT;
+        for (String value : new String[]{user.getEmail(), user.getLogin(), user.getName()}) {
+            if (value != null) {
+                weight += 2 * value.length();
+            }
+        }
+        return weight;
+    }
+}
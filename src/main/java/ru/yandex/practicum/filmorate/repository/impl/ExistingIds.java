@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.repository.index.IdBitmap;
+
+/**
+ * Битовая карта id одной таблицы, согласованная с транзакциями: созданный или удалённый id
+ * отражается сразу, а при откате транзакции изменение отменяется.
+ */
+final class ExistingIds {
+    private final IdBitmap ids = new IdBitmap();
+    private final JdbcTemplate jdbcTemplate;
+    private final String idsSql;
+
+    ExistingIds(JdbcTemplate jdbcTemplate, String idsSql) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idsSql = idsSql;
+        reload();
+    }
+
+    void reload() {
+        ids.rebuild(jdbcTemplate.queryForList(idsSql, Integer.class));
+    }
+
+    boolean contains(int id) {
+        return ids.contains(id);
+    }
+
+    void added(int id) {
+        ids.add(id);
+        Rollbacks.onRollback(() -> ids.remove(id));
+    }
+
+    void removed(int id) {
+        ids.remove(id);
+        Rollbacks.onRollback(() -> ids.add(id));
+    }
+}
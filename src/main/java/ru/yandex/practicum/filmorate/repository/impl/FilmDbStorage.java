@@ -1,41 +1,78 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.index.ScoredId;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component("filmDbStorage")
+@Profile("!in-memory")
 public class FilmDbStorage implements FilmStorage {
     private final Logger log = LoggerFactory.getLogger(FilmDbStorage.class);
     private static final LocalDate RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int REBUILD_ATTEMPTS = 3;
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
+    private final TransactionTemplate chunkTransaction;
+    private final FilmCache filmCache;
+    private final ExistingIds existingIds;
+    private final LikeIndex likeIndex;
+    private final FilmPopularityIndex popularityIndex;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataRegistry referenceData,
+                         PlatformTransactionManager transactionManager, FilmCache filmCache,
+                         LikeIndex likeIndex, FilmPopularityIndex popularityIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.referenceData = referenceData;
+        this.filmCache = filmCache;
+        this.likeIndex = likeIndex;
+        this.popularityIndex = popularityIndex;
+        this.existingIds = new ExistingIds(jdbcTemplate, "SELECT film_id FROM films");
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        popularityIndex.rebuild(getLikesCount());
     }
 
     @Override
     @Transactional
     public Film create(Film film) {
         checkFieldsFilm(film);
-        validateRatingExists(film.getMpa().getId());
+        Rating rating = referenceData.getRating(film.getMpa().getId());
+        Set<Genre> genres = resolveGenres(film.getGenres());
         String sql = """
                 INSERT INTO films (film_name, description, duration, release_date, rating_id)
                 VALUES (?, ?, ?, ?, ?)
@@ -47,14 +84,63 @@ public class FilmDbStorage implements FilmStorage {
             ps.setString(2, film.getDescription());
             ps.setInt(3, film.getDuration());
             ps.setDate(4, java.sql.Date.valueOf(film.getReleaseDate()));
-            ps.setInt(5, film.getMpa().getId());
+            ps.setInt(5, rating.getId());
             return ps;
         }, keyHolder);
         int filmId = keyHolder.getKey().intValue();
         film.setId(filmId);
-        saveFilmGenres(filmId, film.getGenres());
+        insertFilmGenres(filmId, genres);
+        existingIds.added(filmId);
+        popularityIndex.addFilm(filmId);
+        Rollbacks.onRollback(() -> popularityIndex.removeFilm(filmId));
         log.info("Создан новый фильм: {} (id={})", film.getName(), filmId);
-        return findById(filmId);
+        return writtenFilm(film, rating, genres, 0);
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Integer> valid = new ArrayList<>();
+        Map<Integer, Set<Genre>> genresByIndex = new HashMap<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            try {
+                checkFieldsFilm(film);
+                film.setMpa(referenceData.getRating(film.getMpa().getId()));
+                genresByIndex.put(i, resolveGenres(film.getGenres()));
+                valid.add(i);
+            } catch (IncorrectParameterException e) {
+                results[i] = BatchItemResult.failed(i, e.getParameter());
+            } catch (ObjectNotFoundException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+        for (int from = 0; from < valid.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + BATCH_CHUNK_SIZE, valid.size()));
+            try {
+                chunkTransaction.executeWithoutResult(status -> insertFilms(films, chunk, genresByIndex));
+                chunk.forEach(i -> {
+                    existingIds.added(films.get(i).getId());
+                    popularityIndex.addFilm(films.get(i).getId());
+                    results[i] = BatchItemResult.created(i, films.get(i).getId());
+                });
+            } catch (DataAccessException e) {
+                log.warn("Пакет фильмов не записан, повтор по одному: {}", e.getMessage());
+                for (Integer i : chunk) {
+                    try {
+                        chunkTransaction.executeWithoutResult(status -> insertFilms(films, List.of(i), genresByIndex));
+                        existingIds.added(films.get(i).getId());
+                        popularityIndex.addFilm(films.get(i).getId());
+                        results[i] = BatchItemResult.created(i, films.get(i).getId());
+                    } catch (DataAccessException ex) {
+                        results[i] = BatchItemResult.failed(i, ex.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+        log.info("Пакетная загрузка фильмов: получено {}, записано {}", films.size(),
+                Arrays.stream(results).filter(r -> r.getStatus() == BatchItemResult.Status.CREATED).count());
+        return Arrays.asList(results);
     }
 
     @Override
@@ -65,6 +151,7 @@ public class FilmDbStorage implements FilmStorage {
                        f.description,
                        f.release_date,
                        f.duration,
+                       f.likes,
                        r.rating_id,
                        r.rating_title,
                        g.genre_id,
@@ -92,10 +179,8 @@ public class FilmDbStorage implements FilmStorage {
                     film.setDescription(rs.getString("description"));
                     film.setReleaseDate(rs.getDate("release_date").toLocalDate());
                     film.setDuration(rs.getInt("duration"));
-                    Rating rating = new Rating(
-                            rs.getInt("rating_id"),
-                            rs.getString("rating_title")
-                    );
+                    film.setLikes(rs.getInt("likes"));
+                    Rating rating = referenceData.canonicalRating(rs.getInt("rating_id"), rs.getString("rating_title"));
                     film.setMpa(rating);
 
                     film.setGenres(new HashSet<>());
@@ -105,10 +190,7 @@ public class FilmDbStorage implements FilmStorage {
                 int genreId = rs.getInt("genre_id");
 
                 if (!rs.wasNull()) {
-                    Genre genre = new Genre(
-                            genreId,
-                            rs.getString("genre_title")
-                    );
+                    Genre genre = referenceData.canonicalGenre(genreId, rs.getString("genre_title"));
                     film.getGenres().add(genre);
                 }
             }
@@ -116,38 +198,328 @@ public class FilmDbStorage implements FilmStorage {
         });
     }
 
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        String sql = """
+                SELECT f.film_id,
+                       f.film_name,
+                       f.description,
+                       f.release_date,
+                       f.duration,
+                       f.likes,
+                       r.rating_id,
+                       r.rating_title,
+                       g.genre_id,
+                       g.genre_title
+                FROM films f
+                LEFT JOIN rating r ON f.rating_id = r.rating_id
+                LEFT JOIN film_genre fg ON f.film_id = fg.film_id
+                LEFT JOIN genres g ON fg.genre_id = g.genre_id
+                ORDER BY f.film_id, g.genre_id
+                """;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (ResultSetExtractor<Void>) rs -> {
+            Film current = null;
+            while (rs.next()) {
+                int filmId = rs.getInt("film_id");
+                if (current == null || current.getId() != filmId) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = mapFilmRow(rs);
+                }
+                int genreId = rs.getInt("genre_id");
+                if (!rs.wasNull()) {
+                    current.getGenres().add(referenceData.canonicalGenre(genreId, rs.getString("genre_title")));
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+            return null;
+        });
+    }
+
     @Override
     @Transactional
     public Film update(Film film) {
         if (film.getId() <= 0) {
             throw new IncorrectParameterException("Id фильма указан некорректно");
         }
-        findById(film.getId());
-        validateRatingExists(film.getMpa().getId());
+        String currentSql = """
+                SELECT f.likes,
+                       fg.genre_id
+                FROM films f
+                LEFT JOIN film_genre fg ON f.film_id = fg.film_id
+                WHERE f.film_id = ?
+                """;
+        Set<Integer> currentGenreIds = new HashSet<>();
+        int[] likes = {-1};
+        jdbcTemplate.query(currentSql, rs -> {
+            likes[0] = rs.getInt("likes");
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                currentGenreIds.add(genreId);
+            }
+        }, film.getId());
+        if (likes[0] < 0) {
+            log.warn("Фильм с id={} не найден", film.getId());
+            throw new ObjectNotFoundException("Фильм с id=" + film.getId() + " не найден");
+        }
+        Rating rating = referenceData.getRating(film.getMpa().getId());
+        Set<Genre> genres = resolveGenres(film.getGenres());
         String sql = "UPDATE films SET film_name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE film_id = ? ";
         int rows = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
-                film.getMpa().getId(),
+                rating.getId(),
                 film.getId()
         );
         if (rows == 0) {
             throw new ObjectNotFoundException("Фильм с id=" + film.getId() + " не найден");
         }
-        updateFilmGenres(film.getId(), film.getGenres());
-        return findById(film.getId());
+        updateFilmGenres(film.getId(), currentGenreIds, genres);
+        filmCache.invalidate(film.getId());
+        return writtenFilm(film, rating, genres, likes[0]);
     }
 
     @Override
     public Film findById(int filmId) {
+        return filmCache.get(filmId, this::loadById);
+    }
+
+    @Override
+    public boolean existsById(int filmId) {
+        return existingIds.contains(filmId);
+    }
+
+    @Override
+    @Transactional
+    public Film addLikeFilm(int filmId, int userId) {
+        Film film = findById(filmId);
+        String insertSql = "INSERT INTO film_like (user_id, film_id) VALUES (?, ?)";
+        try {
+            jdbcTemplate.update(insertSql, userId, filmId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк уже существует: filmId={}, userId={}", filmId, userId);
+            return film;
+        }
+        film.setLikes(changeLikesCounter(filmId, 1));
+        filmCache.invalidate(filmId);
+        likeIndex.liked(filmId, userId);
+        popularityIndex.increment(filmId);
+        Rollbacks.onRollback(() -> popularityIndex.decrement(filmId));
+        log.info("Пользователь id={} поставил лайк фильму id={}", userId, filmId);
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public void checkFieldsFilm(Film film) {
+        if (film.getDuration() <= 0) {
+            log.warn("Продолжительность фильма должна быть положительной");
+            throw new IncorrectParameterException("Продолжительность фильма должна быть положительной");
+        }
+        if (film.getName() == null || film.getName().isBlank()) {
+            log.warn("Название фильма не может быть пустым");
+            throw new IncorrectParameterException("Название фильма не может быть пустым");
+        }
+        if (film.getReleaseDate() == null) {
+            log.warn("Дата релиза обязательна");
+            throw new IncorrectParameterException("Дата релиза обязательна");
+        }
+        if (film.getReleaseDate().isBefore(RELEASE_DATE)) {
+            log.warn("Дата релиза не может быть раньше 28 декабря 1895 года");
+            throw new IncorrectParameterException("Дата релиза не может быть раньше 28 декабря 1895 года");
+        }
+        if (film.getMpa() == null) {
+            log.warn("Рейтинг обязателен");
+            throw new IncorrectParameterException("Рейтинг обязателен");
+        }
+    }
+
+    @Override
+    @Transactional
+    public void deleteLikeFilm(Integer id, Integer userId) {
+        requireFilm(id);
+        String sql = "DELETE FROM film_like WHERE film_id = ? AND user_id = ?";
+        int rows = jdbcTemplate.update(sql, id, userId);
+        if (rows == 0) {
+            log.warn("Лайк не найден: filmId={}, userId={}", id, userId);
+            throw new IncorrectParameterException("Лайк не найден");
+        }
+        changeLikesCounter(id, -1);
+        filmCache.invalidate(id);
+        likeIndex.unliked(id, userId);
+        popularityIndex.decrement(id);
+        Rollbacks.onRollback(() -> popularityIndex.increment(id));
+        log.info("Пользователь id={} удалил лайк у фильма id={}", userId, id);
+    }
+
+    @Override
+    public boolean isLiked(int filmId, int userId) {
+        return likeIndex.contains(filmId, userId);
+    }
+
+    @Override
+    @Transactional
+    public Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes) {
+        if (changes.isEmpty()) {
+            return Map.of();
+        }
+        List<LikeChange> likes = changes.stream().filter(LikeChange::isLiked).toList();
+        List<LikeChange> unlikes = changes.stream().filter(change -> !change.isLiked()).toList();
+        if (!likes.isEmpty()) {
+            String mergeSql = "MERGE INTO film_like (user_id, film_id) KEY (user_id, film_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(mergeSql, likes, likes.size(), (ps, change) -> {
+                ps.setInt(1, change.getUserId());
+                ps.setInt(2, change.getFilmId());
+            });
+        }
+        if (!unlikes.isEmpty()) {
+            String deleteSql = "DELETE FROM film_like WHERE user_id = ? AND film_id = ?";
+            jdbcTemplate.batchUpdate(deleteSql, unlikes, unlikes.size(), (ps, change) -> {
+                ps.setInt(1, change.getUserId());
+                ps.setInt(2, change.getFilmId());
+            });
+        }
+        List<Integer> filmIds = changes.stream().map(LikeChange::getFilmId).distinct().toList();
+        String counterSql = """
+                UPDATE films f
+                SET likes = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                WHERE f.film_id = ?
+                """;
+        jdbcTemplate.batchUpdate(counterSql, filmIds, filmIds.size(), (ps, filmId) -> ps.setInt(1, filmId));
+        filmCache.invalidateAll(filmIds);
+        likes.forEach(change -> likeIndex.liked(change.getFilmId(), change.getUserId()));
+        unlikes.forEach(change -> likeIndex.unliked(change.getFilmId(), change.getUserId()));
+        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
+        Map<Integer, Integer> likesCount = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, likes FROM films WHERE film_id IN (%s)".formatted(placeholders),
+                rs -> {
+                    likesCount.put(rs.getInt("film_id"), rs.getInt("likes"));
+                }, filmIds.toArray());
+        Map<Integer, Integer> previous = new HashMap<>();
+        likesCount.keySet().forEach(filmId -> previous.put(filmId, popularityIndex.likes(filmId)));
+        likesCount.forEach(popularityIndex::setLikes);
+        Rollbacks.onRollback(() -> previous.forEach(popularityIndex::setLikes));
+        log.debug("Записано изменений лайков: {}, затронуто фильмов: {}", changes.size(), filmIds.size());
+        return likesCount;
+    }
+
+    @Override
+    public List<Film> getPopularFilm(int count) {
+        return findByIds(Arrays.stream(popularityIndex.top(count)).boxed().toList());
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        List<Integer> filmIds = likeIndex.recommend(userId, limit).stream().map(ScoredId::id).toList();
+        return findByIds(filmIds);
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Integer> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return List.of();
+        }
+        return filmCache.getAll(List.copyOf(new LinkedHashSet<>(filmIds)), this::loadByIds);
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String sql = """
+                SELECT f.film_id,
+                       f.film_name,
+                       f.description,
+                       f.release_date,
+                       f.duration,
+                       f.likes,
+                       r.rating_id,
+                       r.rating_title
+                FROM films f
+                LEFT JOIN rating r ON f.rating_id = r.rating_id
+                WHERE f.film_id > ?
+                ORDER BY f.film_id
+                LIMIT ?
+                """;
+        Map<Integer, Film> filmMap = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Film film = mapFilmRow(rs);
+            filmMap.put(film.getId(), film);
+        }, afterId, limit);
+        fillGenres(filmMap);
+        return new ArrayList<>(filmMap.values());
+    }
+
+    @Override
+    @Transactional
+    public int reconcileLikes() {
+        String sql = """
+                UPDATE films f
+                SET likes = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                WHERE likes <> (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                """;
+        int rows = jdbcTemplate.update(sql);
+        if (rows > 0) {
+            filmCache.clear();
+            log.warn("Исправлены счётчики лайков у {} фильмов", rows);
+        }
+        rebuildPopularityIndex();
+        return rows;
+    }
+
+    /**
+     * Лайк, записанный между чтением снимка и перестройкой, менял бы индекс и терялся при подмене,
+     * поэтому снимок читается заново, пока версия индекса не совпадёт с взятой перед чтением.
+     */
+    private void rebuildPopularityIndex() {
+        for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+            long version = popularityIndex.version();
+            if (popularityIndex.rebuild(version, getLikesCount())) {
+                return;
+            }
+        }
+        log.warn("Индекс популярности не перестроен: лайки менялись во время {} попыток", REBUILD_ATTEMPTS);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCount() {
+        String sql = """
+                SELECT f.film_id,
+                       COUNT(fl.user_id) AS likes
+                FROM films f
+                LEFT JOIN film_like fl ON f.film_id = fl.film_id
+                GROUP BY f.film_id
+                """;
+        Map<Integer, Integer> likesCount = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likesCount.put(rs.getInt("film_id"), rs.getInt("likes"));
+        });
+        return likesCount;
+    }
+
+    private void requireFilm(int filmId) {
+        if (!existsById(filmId)) {
+            log.warn("Фильм с id={} не найден", filmId);
+            throw new ObjectNotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+    }
+
+    private Film loadById(int filmId) {
         String sql = """
                 SELECT f.film_id,
                        f.film_name,
                        f.description,
                        f.release_date,
                        f.duration,
+                       f.likes,
                        r.rating_id,
                        r.rating_title,
                        g.genre_id,
@@ -173,12 +545,10 @@ public class FilmDbStorage implements FilmStorage {
                     film.setDescription(rs.getString("description"));
                     film.setReleaseDate(rs.getDate("release_date").toLocalDate());
                     film.setDuration(rs.getInt("duration"));
+                    film.setLikes(rs.getInt("likes"));
                     int ratingId = rs.getInt("rating_id");
                     if (!rs.wasNull()) {
-                        Rating rating = new Rating(
-                                ratingId,
-                                rs.getString("rating_title")
-                        );
+                        Rating rating = referenceData.canonicalRating(ratingId, rs.getString("rating_title"));
                         film.setMpa(rating);
                     }
 
@@ -187,10 +557,7 @@ public class FilmDbStorage implements FilmStorage {
 
                 int genreId = rs.getInt("genre_id");
                 if (!rs.wasNull()) {
-                    Genre genre = new Genre(
-                            genreId,
-                            rs.getString("genre_title")
-                    );
+                    Genre genre = referenceData.canonicalGenre(genreId, rs.getString("genre_title"));
                     film.getGenres().add(genre);
                 }
             }
@@ -204,115 +571,164 @@ public class FilmDbStorage implements FilmStorage {
         }, filmId);
     }
 
-    @Override
-    public Film addLikeFilm(int filmId, int userId) {
-        Film film = findById(filmId);
-        String checkSql = "SELECT COUNT(*) FROM film_like WHERE film_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, filmId, userId);
-        if (count != null && count > 0) {
-            log.debug("Лайк уже существует: filmId={}, userId={}", filmId, userId);
-            return film;
+    private Map<Integer, Film> loadByIds(List<Integer> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String filmsSql = """
+                SELECT f.film_id,
+                       f.film_name,
+                       f.description,
+                       f.release_date,
+                       f.duration,
+                       f.likes,
+                       r.rating_id,
+                       r.rating_title
+                FROM films f
+                LEFT JOIN rating r ON f.rating_id = r.rating_id
+                WHERE f.film_id IN (%s)
+                """.formatted(placeholders);
+        Map<Integer, Film> filmMap = new HashMap<>();
+        jdbcTemplate.query(filmsSql, rs -> {
+            Film film = mapFilmRow(rs);
+            filmMap.put(film.getId(), film);
+        }, ids.toArray());
+        fillGenres(filmMap);
+        return filmMap;
+    }
+
+    private Film mapFilmRow(ResultSet rs) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        film.setName(rs.getString("film_name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        film.setLikes(rs.getInt("likes"));
+        int ratingId = rs.getInt("rating_id");
+        if (!rs.wasNull()) {
+            film.setMpa(referenceData.canonicalRating(ratingId, rs.getString("rating_title")));
         }
-        String insertSql = "INSERT INTO film_like (user_id, film_id) VALUES (?, ?)";
-        jdbcTemplate.update(insertSql, userId, filmId);
-        log.info("Пользователь id={} поставил лайк фильму id={}", userId, filmId);
+        film.setGenres(new LinkedHashSet<>());
         return film;
     }
 
-    @Override
-    @Transactional
-    public void checkFieldsFilm(Film film) {
-        if (film.getDuration() <= 0) {
-            log.warn("Продолжительность фильма должна быть положительной");
-            throw new IncorrectParameterException("Продолжительность фильма должна быть положительной");
-        }
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.warn("Название фильма не может быть пустым");
-            throw new IncorrectParameterException("Название фильма не может быть пустым");
-        }
-        if (film.getReleaseDate().isBefore(RELEASE_DATE)) {
-            log.warn("Дата релиза не может быть раньше 28 декабря 1895 года");
-            throw new IncorrectParameterException("Дата релиза не может быть раньше 28 декабря 1895 года");
-        }
-        if (film.getMpa() == null) {
-            log.warn("Рейтинг обязателен");
-            throw new IncorrectParameterException("Рейтинг обязателен");
+    private void fillGenres(Map<Integer, Film> filmMap) {
+        if (filmMap.isEmpty()) {
+            return;
         }
+        String placeholders = String.join(",", Collections.nCopies(filmMap.size(), "?"));
+        String sql = """
+                SELECT fg.film_id,
+                       g.genre_id,
+                       g.genre_title
+                FROM film_genre fg
+                JOIN genres g ON fg.genre_id = g.genre_id
+                WHERE fg.film_id IN (%s)
+                ORDER BY fg.film_id, g.genre_id
+                """.formatted(placeholders);
+        jdbcTemplate.query(sql, rs -> {
+            Film film = filmMap.get(rs.getInt("film_id"));
+            film.getGenres().add(referenceData.canonicalGenre(rs.getInt("genre_id"), rs.getString("genre_title")));
+        }, filmMap.keySet().toArray());
     }
 
-    @Override
-    @Transactional
-    public void deleteLikeFilm(Integer id, Integer userId) {
-        findById(id);
-        String sql = "DELETE FROM film_like WHERE film_id = ? AND user_id = ?";
-        int rows = jdbcTemplate.update(sql, id, userId);
-        if (rows == 0) {
-            log.warn("Лайк не найден: filmId={}, userId={}", id, userId);
-            throw new IncorrectParameterException("Лайк не найден");
-        }
-        log.info("Пользователь id={} удалил лайк у фильма id={}", userId, id);
+    private int changeLikesCounter(int filmId, int delta) {
+        String sql = "SELECT likes FROM FINAL TABLE (UPDATE films SET likes = likes + ? WHERE film_id = ?)";
+        return jdbcTemplate.queryForObject(sql, Integer.class, delta, filmId);
     }
 
-    @Override
-    public List<Film> getPopularFilm(int count) {
+    private void insertFilms(List<Film> films, List<Integer> indexes, Map<Integer, Set<Genre>> genresByIndex) {
         String sql = """
-                SELECT f.film_id
-                FROM films f
-                LEFT JOIN film_like fl ON f.film_id = fl.film_id
-                GROUP BY f.film_id
-                ORDER BY COUNT(fl.user_id) DESC
-                LIMIT ?
+                INSERT INTO films (film_name, description, duration, release_date, rating_id)
+                VALUES (?, ?, ?, ?, ?)
                 """;
-        List<Integer> idPopularFilms = jdbcTemplate.queryForList(sql, Integer.class, count);
-        return idPopularFilms.stream()
-                .map(id -> findById(id))
-                .toList();
-    }
-
-    private void validateGenreExists(int genreId) {
-        String sql = "SELECT COUNT(*) FROM genres WHERE genre_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, genreId);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(indexes.get(i));
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setInt(3, film.getDuration());
+                        ps.setDate(4, java.sql.Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(5, film.getMpa().getId());
+                    }
 
-        if (count == null || count == 0) {
-            log.warn("Жанр с id={} не найден", genreId);
-            throw new ObjectNotFoundException("Жанр с id=" + genreId + " не найден");
+                    @Override
+                    public int getBatchSize() {
+                        return indexes.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<int[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            Film film = films.get(indexes.get(i));
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            for (Genre genre : genresByIndex.get(indexes.get(i))) {
+                filmGenres.add(new int[]{film.getId(), genre.getId()});
+            }
         }
-    }
-
-    private void validateRatingExists(int ratingId) {
-        String sql = "SELECT COUNT(*) FROM rating WHERE rating_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, ratingId);
-
-        if (count == null || count == 0) {
-            throw new ObjectNotFoundException("Рейтинг с id=" + ratingId + " не найден");
+        if (!filmGenres.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)",
+                    filmGenres, filmGenres.size(), (ps, pair) -> {
+                        ps.setInt(1, pair[0]);
+                        ps.setInt(2, pair[1]);
+                    });
         }
     }
 
-    private void saveFilmGenres(int filmId, Set<Genre> genres) {
+    private Set<Genre> resolveGenres(Set<Genre> genres) {
         if (genres == null || genres.isEmpty()) {
-            return;
+            return new LinkedHashSet<>();
         }
-
-        String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-
+        Map<Integer, Genre> resolved = new TreeMap<>();
         for (Genre genre : genres) {
-            validateGenreExists(genre.getId());
-            jdbcTemplate.update(sql, filmId, genre.getId());
+            resolved.put(genre.getId(), referenceData.getGenre(genre.getId()));
         }
+        return new LinkedHashSet<>(resolved.values());
     }
 
-    private void updateFilmGenres(int filmId, Set<Genre> genres) {
-        String deleteSql = "DELETE FROM film_genre WHERE film_id = ?";
-        jdbcTemplate.update(deleteSql, filmId);
-        if (genres == null || genres.isEmpty()) {
+    private Film writtenFilm(Film source, Rating rating, Set<Genre> genres, int likes) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(rating);
+        film.setGenres(genres);
+        film.setLikes(likes);
+        return film;
+    }
+
+    private void insertFilmGenres(int filmId, Collection<Genre> genres) {
+        if (genres.isEmpty()) {
             return;
         }
-        String insertSql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-        jdbcTemplate.batchUpdate(insertSql, genres, genres.size(),
+        String sql = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genres, genres.size(),
                 (ps, genre) -> {
-                    validateGenreExists(genre.getId());
                     ps.setInt(1, filmId);
                     ps.setInt(2, genre.getId());
                 });
     }
+
+    private void updateFilmGenres(int filmId, Set<Integer> currentGenreIds, Set<Genre> genres) {
+        Set<Integer> removed = new HashSet<>(currentGenreIds);
+        List<Genre> added = new ArrayList<>();
+        for (Genre genre : genres) {
+            if (!removed.remove(genre.getId())) {
+                added.add(genre);
+            }
+        }
+        if (!removed.isEmpty()) {
+            String deleteSql = "DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?";
+            jdbcTemplate.batchUpdate(deleteSql, removed, removed.size(),
+                    (ps, genreId) -> {
+                        ps.setInt(1, filmId);
+                        ps.setInt(2, genreId);
+                    });
+        }
+        insertFilmGenres(filmId, added);
+    }
 }
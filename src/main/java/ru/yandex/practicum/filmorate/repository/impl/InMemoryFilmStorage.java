@@ -3,63 +3,145 @@ package ru.yandex.practicum.filmorate.repository.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
-import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.repository.index.ScoredId;
+import ru.yandex.practicum.filmorate.repository.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.repository.journal.MutationJournal;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Хранилище фильмов в памяти для профиля {@code in-memory}.
+ * Фильмы лежат в {@link ConcurrentSkipListMap} по id и не меняются на месте. Лайки хранятся только
+ * в {@link LikeMatrix}, поэтому число лайков фильма всегда берётся из неё и не расходится со списком.
+ * Жанры и рейтинги проверяются по справочникам {@link ReferenceDataRegistry}, как и в базе.
+ * Хранилище создаётся после хранилища пользователей, поэтому оно и восстанавливает оба из
+ * {@link MutationJournal} — до того, как их увидят сервисы.
+ */
 @Component("inMemoryFilmStorage")
+@Profile("in-memory")
 public class InMemoryFilmStorage implements FilmStorage {
     private static final Logger log = LoggerFactory.getLogger(InMemoryFilmStorage.class);
+    private static final int RECOMMENDATION_NEIGHBOURS = 50;
     private static final LocalDate RELEASE_DATE = LocalDate.of(1895, 12, 28);
-    private final Map<Integer, Film> filmsStorage = new HashMap<>();
-    private int nextId = 1;
+    private final ConcurrentSkipListMap<Integer, Film> filmsStorage = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final LikeMatrix likeMatrix = new LikeMatrix();
 
-    private final UserStorage userStorage;
+    private final InMemoryUserStorage userStorage;
+    private final ReferenceDataRegistry referenceData;
+    private final MutationJournal journal;
+    private final FilmPopularityIndex popularityIndex;
 
     @Autowired
-    public InMemoryFilmStorage(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public InMemoryFilmStorage(InMemoryUserStorage userStorage, ReferenceDataRegistry referenceData,
+                               MutationJournal journal, FilmPopularityIndex popularityIndex) {
         this.userStorage = userStorage;
+        this.popularityIndex = popularityIndex;
+        this.referenceData = referenceData;
+        this.journal = journal;
+        userStorage.addDeleteListener(this::removeUserLikes);
+        journal.recover(record -> {
+            if (!userStorage.restore(record)) {
+                restore(record);
+            }
+        }, records -> {
+            userStorage.export(records);
+            export(records);
+        });
+        popularityIndex.rebuild(getLikesCount());
     }
 
     @Override
     public Film create(Film film) {
         checkFieldsFilm(film);
-        film.setId(nextId++);
-        filmsStorage.put(film.getId(), film);
-        return film;
+        Rating rating = referenceData.getRating(film.getMpa().getId());
+        Set<Genre> genres = resolveGenres(film.getGenres());
+        Film stored = journal.write(records -> {
+            film.setId(nextId.getAndIncrement());
+            Film created = storedFilm(film, rating, genres);
+            filmsStorage.put(created.getId(), created);
+            popularityIndex.addFilm(created.getId());
+            records.accept(saved(created));
+            return created;
+        });
+        log.info("Создан новый фильм: {} (id={})", film.getName(), stored.getId());
+        return withLikes(stored);
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<Film> films) {
+        List<BatchItemResult> results = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                results.add(BatchItemResult.created(i, create(films.get(i)).getId()));
+            } catch (IncorrectParameterException e) {
+                results.add(BatchItemResult.failed(i, e.getParameter()));
+            } catch (ObjectNotFoundException e) {
+                results.add(BatchItemResult.failed(i, e.getMessage()));
+            }
+        }
+        return results;
     }
 
     @Override
     public List<Film> getAll() {
         log.info("Текущее количество фильмов: {}", filmsStorage.size());
-        return List.copyOf(filmsStorage.values());
+        return filmsStorage.values().stream().map(this::withLikes).toList();
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return filmsStorage.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(this::withLikes)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        filmsStorage.values().forEach(film -> consumer.accept(withLikes(film)));
     }
 
     @Override
     public Film update(Film film) {
         if (film.getId() <= 0) {
             log.warn("Id фильма должен быть указан");
-            throw new IncorrectParameterException("Id фильма должен быть указан");
+            throw new IncorrectParameterException("Id фильма указан некорректно");
         }
-
-        Film existingFilm = filmsStorage.get(film.getId());
-        if (existingFilm == null) {
+        checkFieldsFilm(film);
+        if (!filmsStorage.containsKey(film.getId())) {
             log.warn("Фильм с id=" + film.getId() + " не найден");
             throw new ObjectNotFoundException("Фильм с id=" + film.getId() + " не найден");
         }
-        checkFieldsFilm(film);
-        existingFilm.setName(film.getName());
-        existingFilm.setDescription(film.getDescription());
-        existingFilm.setReleaseDate(film.getReleaseDate());
-        existingFilm.setDuration(film.getDuration());
-        return existingFilm;
+        Rating rating = referenceData.getRating(film.getMpa().getId());
+        Film updated = storedFilm(film, rating, resolveGenres(film.getGenres()));
+        boolean replaced = journal.write(records -> {
+            if (filmsStorage.replace(film.getId(), updated) == null) {
+                return false;
+            }
+            records.accept(saved(updated));
+            return true;
+        });
+        if (!replaced) {
+            throw new ObjectNotFoundException("Фильм с id=" + film.getId() + " не найден");
+        }
+        return withLikes(updated);
     }
 
     @Override
@@ -69,15 +151,51 @@ public class InMemoryFilmStorage implements FilmStorage {
             log.warn("Фильм с введенным id не найден");
             throw new ObjectNotFoundException("Фильм с id=" + filmId + " не найден");
         }
-        return film;
+        return withLikes(film);
+    }
+
+    @Override
+    public boolean existsById(int filmId) {
+        return filmsStorage.containsKey(filmId);
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Integer> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return List.of();
+        }
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Integer filmId : new LinkedHashSet<>(filmIds)) {
+            Film film = filmsStorage.get(filmId);
+            if (film != null) {
+                films.add(withLikes(film));
+            }
+        }
+        return films;
     }
 
     @Override
     public Film addLikeFilm(int filmId, int userId) {
-        User user = userStorage.findById(userId);
-        Film film = findById(filmId);
-        // film.getLikes().add(user.getId());
-        return film;
+        requireFilm(filmId);
+        requireUser(userId);
+        boolean liked = journal.write(records -> {
+            if (!likeMatrix.like(userId, filmId)) {
+                return false;
+            }
+            if (!userStorage.existsById(userId)) {
+                likeMatrix.unlike(userId, filmId);
+                throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+            }
+            popularityIndex.increment(filmId);
+            records.accept(new JournalRecord.LikeAdded(filmId, userId));
+            return true;
+        });
+        if (liked) {
+            log.info("Пользователь id={} поставил лайк фильму id={}", userId, filmId);
+        } else {
+            log.debug("Лайк уже существует: filmId={}, userId={}", filmId, userId);
+        }
+        return findById(filmId);
     }
 
     @Override
@@ -90,26 +208,201 @@ public class InMemoryFilmStorage implements FilmStorage {
             log.warn("Название фильма не может быть пустым");
             throw new IncorrectParameterException("Название фильма не может быть пустым");
         }
+        if (film.getReleaseDate() == null) {
+            log.warn("Дата релиза обязательна");
+            throw new IncorrectParameterException("Дата релиза обязательна");
+        }
         if (film.getReleaseDate().isBefore(RELEASE_DATE)) {
             log.warn("Дата релиза не может быть раньше 28 декабря 1895 года");
             throw new IncorrectParameterException("Дата релиза не может быть раньше 28 декабря 1895 года");
         }
+        if (film.getMpa() == null) {
+            log.warn("Рейтинг обязателен");
+            throw new IncorrectParameterException("Рейтинг обязателен");
+        }
     }
 
     @Override
     public void deleteLikeFilm(Integer id, Integer userId) {
-        User user = userStorage.findById(userId);
-        Film film = findById(id);
-        //   film.getLikes().remove(user.getId());
+        requireFilm(id);
+        boolean unliked = journal.write(records -> {
+            if (!likeMatrix.unlike(userId, id)) {
+                return false;
+            }
+            popularityIndex.decrement(id);
+            records.accept(new JournalRecord.LikeRemoved(id, userId));
+            return true;
+        });
+        if (!unliked) {
+            log.warn("Лайк не найден: filmId={}, userId={}", id, userId);
+            throw new IncorrectParameterException("Лайк не найден");
+        }
+        log.info("Пользователь id={} удалил лайк у фильма id={}", userId, id);
+    }
+
+    @Override
+    public boolean isLiked(int filmId, int userId) {
+        return likeMatrix.contains(userId, filmId);
+    }
+
+    @Override
+    public Map<Integer, Integer> applyLikeChanges(Collection<LikeChange> changes) {
+        Map<Integer, Integer> likesCount = journal.write(records -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (LikeChange change : changes) {
+                int filmId = change.getFilmId();
+                int userId = change.getUserId();
+                if (!filmsStorage.containsKey(filmId)) {
+                    continue;
+                }
+                if (change.isLiked()) {
+                    if (userStorage.existsById(userId) && likeMatrix.like(userId, filmId)) {
+                        records.accept(new JournalRecord.LikeAdded(filmId, userId));
+                    }
+                } else if (likeMatrix.unlike(userId, filmId)) {
+                    records.accept(new JournalRecord.LikeRemoved(filmId, userId));
+                }
+                counts.put(filmId, likeMatrix.likeCount(filmId));
+            }
+            return counts;
+        });
+        likesCount.forEach(popularityIndex::setLikes);
+        return likesCount;
     }
 
     @Override
     public List<Film> getPopularFilm(int count) {
-        return List.of();
-//        return filmsStorage.values()
-//                .stream()
-//                .sorted(Comparator.comparingInt((Film f) -> f.getLikes().size()).reversed())
-//                .limit(count)
-//                .toList();
+        return findByIds(Arrays.stream(popularityIndex.top(count)).boxed().toList());
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        return findByIds(likeMatrix.recommend(userId, RECOMMENDATION_NEIGHBOURS, limit, ForkJoinPool.commonPool())
+                .stream()
+                .map(ScoredId::id)
+                .toList());
+    }
+
+    @Override
+    public int reconcileLikes() {
+        long version = popularityIndex.version();
+        Map<Integer, Integer> likesCount = getLikesCount();
+        int fixed = 0;
+        for (Map.Entry<Integer, Integer> entry : likesCount.entrySet()) {
+            if (popularityIndex.likes(entry.getKey()) != entry.getValue()) {
+                fixed++;
+            }
+        }
+        if (!popularityIndex.rebuild(version, likesCount)) {
+            log.debug("Индекс популярности не перестроен: лайки менялись во время сверки");
+            return 0;
+        }
+        if (fixed > 0) {
+            log.warn("Исправлены счётчики лайков у {} фильмов", fixed);
+        }
+        return fixed;
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCount() {
+        Map<Integer, Integer> likesCount = new HashMap<>();
+        for (Integer filmId : filmsStorage.keySet()) {
+            likesCount.put(filmId, likeMatrix.likeCount(filmId));
+        }
+        return likesCount;
+    }
+
+    /**
+     * Применяет запись журнала о фильмах или лайках без проверок. Индекс популярности после
+     * восстановления перестраивается целиком.
+     */
+    void restore(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.FilmSaved saved -> {
+                Film film = new Film();
+                film.setId(saved.id());
+                film.setName(saved.name());
+                film.setDescription(saved.description());
+                film.setReleaseDate(saved.releaseDate());
+                film.setDuration(saved.duration());
+                film.setMpa(referenceData.canonicalRating(saved.ratingId(), null));
+                Set<Genre> genres = new LinkedHashSet<>();
+                for (int genreId : saved.genreIds()) {
+                    genres.add(referenceData.canonicalGenre(genreId, null));
+                }
+                film.setGenres(genres);
+                filmsStorage.put(film.getId(), film);
+                nextId.accumulateAndGet(film.getId() + 1, Math::max);
+            }
+            case JournalRecord.LikeAdded like -> likeMatrix.like(like.userId(), like.filmId());
+            case JournalRecord.LikeRemoved like -> likeMatrix.unlike(like.userId(), like.filmId());
+            default -> log.warn("Пропущена запись журнала неизвестного назначения: {}", record);
+        }
+    }
+
+    /**
+     * Текущее состояние в виде записей журнала: сначала фильмы, затем лайки.
+     */
+    void export(Consumer<JournalRecord> records) {
+        filmsStorage.values().forEach(film -> records.accept(saved(film)));
+        for (Integer filmId : filmsStorage.keySet()) {
+            for (int userId : likeMatrix.likers(filmId)) {
+                records.accept(new JournalRecord.LikeAdded(filmId, userId));
+            }
+        }
+    }
+
+    private void removeUserLikes(int userId) {
+        for (int filmId : likeMatrix.removeUser(userId)) {
+            popularityIndex.decrement(filmId);
+        }
+    }
+
+    private static JournalRecord saved(Film film) {
+        return new JournalRecord.FilmSaved(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId(), film.getGenres().stream().mapToInt(Genre::getId).toArray());
+    }
+
+    private Film withLikes(Film stored) {
+        Film film = storedFilm(stored, stored.getMpa(), new LinkedHashSet<>(stored.getGenres()));
+        film.setLikes(likeMatrix.likeCount(stored.getId()));
+        return film;
+    }
+
+    private Film storedFilm(Film source, Rating rating, Set<Genre> genres) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setMpa(rating);
+        film.setGenres(genres);
+        return film;
+    }
+
+    private Set<Genre> resolveGenres(Set<Genre> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        Map<Integer, Genre> resolved = new TreeMap<>();
+        for (Genre genre : genres) {
+            resolved.put(genre.getId(), referenceData.getGenre(genre.getId()));
+        }
+        return new LinkedHashSet<>(resolved.values());
+    }
+
+    private void requireFilm(int filmId) {
+        if (!existsById(filmId)) {
+            log.warn("Фильм с id={} не найден", filmId);
+            throw new ObjectNotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+    }
+
+    private void requireUser(int userId) {
+        if (!userStorage.existsById(userId)) {
+            log.warn("Пользователь с id=" + userId + " не найден");
+            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+        }
     }
 }
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Справочники для профиля {@code in-memory}, где базы нет: те же жанры и рейтинги, что в data.sql.
+ */
+@Component
+@Profile("in-memory")
+public class InMemoryReferenceDataLoader implements ReferenceDataLoader {
+    private static final List<String> GENRES = List.of(
+            "Комедия", "Драма", "Мультфильм", "Триллер", "Документальный", "Боевик");
+    private static final List<String> RATINGS = List.of("G", "PG", "PG-13", "R", "NC-17");
+
+    @Override
+    public List<Genre> loadGenres() {
+        return IntStream.range(0, GENRES.size())
+                .mapToObj(i -> new Genre(i + 1, GENRES.get(i)))
+                .toList();
+    }
+
+    @Override
+    public List<Rating> loadRatings() {
+        return IntStream.range(0, RATINGS.size())
+                .mapToObj(i -> new Rating(i + 1, RATINGS.get(i)))
+                .toList();
+    }
+}
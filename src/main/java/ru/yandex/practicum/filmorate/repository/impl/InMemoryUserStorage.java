@@ -1,54 +1,117 @@
 package ru.yandex.practicum.filmorate.repository.impl;
 
-import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.index.FriendGraph;
+import ru.yandex.practicum.filmorate.repository.index.ScoredId;
+import ru.yandex.practicum.filmorate.repository.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.repository.journal.MutationJournal;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
+/**
+ * Хранилище пользователей в памяти для профиля {@code in-memory}.
+ * Пользователи лежат в {@link ConcurrentSkipListMap} по id, поэтому страницы и потоковая выгрузка
+ * идут в порядке id без сортировки. Уникальность email проверяется по хэш-индексу email → id,
+ * дружба — тот же {@link FriendGraph}, что и у хранилища в базе. Записи не меняются на месте:
+ * обновление кладёт новый объект, а наружу отдаются копии. Изменения проходят через
+ * {@link MutationJournal}; восстановление из него запускает {@link InMemoryFilmStorage}.
+ */
 @Component("inMemoryUserStorage")
+@Profile("in-memory")
 public class InMemoryUserStorage implements UserStorage {
     private static final Logger log = LoggerFactory.getLogger(InMemoryUserStorage.class);
-    private final Map<Integer, User> userStorage = new HashMap<>();
-    private int nextIdUser = 1;
-
-    private void validateEmailUniqueness(User user) {
-        boolean emailExists = userStorage.values().stream()
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(user.getEmail())
-                        && u.getId() != user.getId());
-
-        if (emailExists) {
-            log.info("Пользователь с электронной почтой уже зарегистрирован.");
-            throw new IncorrectParameterException(
-                    String.format("Пользователь с электронной почтой %s уже зарегистрирован.", user.getEmail())
-            );
-        }
+    // Почта занимается до выдачи id, чтобы отклонённое создание не расходовало id.
+    private static final int EMAIL_RESERVED = 0;
+    private final ConcurrentSkipListMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final Map<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final FriendGraph friendGraph = new FriendGraph();
+    private final List<IntConsumer> deleteListeners = new CopyOnWriteArrayList<>();
+    private final MutationJournal journal;
+
+    public InMemoryUserStorage(MutationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Подписка на удаление пользователя — хранилище фильмов убирает по ней его лайки.
+     */
+    public void addDeleteListener(IntConsumer listener) {
+        deleteListeners.add(listener);
     }
 
     @Override
-    public User create(@Valid User user) {
+    public User create(User user) {
         validateEmailFormat(user);
-        validateEmailUniqueness(user);
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
+        String name = user.getName() == null || user.getName().isBlank() ? user.getLogin() : user.getName();
+        User stored = journal.write(records -> {
+            if (idsByEmail.putIfAbsent(user.getEmail(), EMAIL_RESERVED) != null) {
+                throw emailTaken(user.getEmail());
+            }
+            int id = nextId.getAndIncrement();
+            idsByEmail.put(user.getEmail(), id);
+            User created = new User(id, user.getEmail(), user.getLogin(), name, user.getBirthday());
+            users.put(id, created);
+            records.accept(saved(created));
+            return created;
+        });
+        user.setId(stored.getId());
+        user.setName(name);
+        log.info("Создан новый пользователь: {} (id={})", name, stored.getId());
+        return copy(stored);
+    }
+
+    @Override
+    public List<BatchItemResult> createAll(List<User> users) {
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            if (users.get(i).getBirthday() == null) {
+                results.add(BatchItemResult.failed(i, "Дата рождения не может быть пустой."));
+                continue;
+            }
+            try {
+                results.add(BatchItemResult.created(i, create(users.get(i)).getId()));
+            } catch (IncorrectParameterException e) {
+                results.add(BatchItemResult.failed(i, e.getParameter()));
+            } catch (ObjectNotFoundException e) {
+                results.add(BatchItemResult.failed(i, e.getMessage()));
+            }
         }
-        user.setId(nextIdUser++);
-        userStorage.put(user.getId(), user);
-        return user;
+        return results;
     }
 
     @Override
     public void delete(int userId) {
-        User removed = userStorage.remove(userId);
-        if (removed == null) {
-            log.warn("Id пользователя указан некорректно");
-            throw new IncorrectParameterException("Id пользователя указан некорректно");
+        boolean removed = journal.write(records -> {
+            if (!removeUser(userId)) {
+                return false;
+            }
+            records.accept(new JournalRecord.UserDeleted(userId));
+            return true;
+        });
+        if (!removed) {
+            log.warn("Пользователь с id={} не найден для удаления.", userId);
+            throw new IncorrectParameterException("Пользователь с указанным id не найден.");
         }
+        log.info("Пользователь с id={} успешно удалён.", userId);
     }
 
     @Override
@@ -60,86 +123,225 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     @Override
-    public User update(@Valid User user) {
+    public User update(User user) {
         validateEmailFormat(user);
         if (user.getId() <= 0) {
             log.warn("Id пользователя должен быть указан");
             throw new IncorrectParameterException("Id пользователя указан некорректно");
         }
-        User existingUser = userStorage.get(user.getId());
-        if (existingUser == null) {
-            log.warn("Пользователь с id=" + user.getId() + " не найден");
-            throw new ObjectNotFoundException("Пользователь с id=" + user.getId() + " не найден");
+        int id = user.getId();
+        String name = user.getName() == null || user.getName().isBlank() ? user.getLogin() : user.getName();
+        User updated = new User(id, user.getEmail(), user.getLogin(), name, user.getBirthday());
+        User stored = journal.write(records -> {
+            User result = users.computeIfPresent(id, (key, current) -> {
+                if (!current.getEmail().equals(updated.getEmail())) {
+                    Integer owner = idsByEmail.putIfAbsent(updated.getEmail(), id);
+                    if (owner != null && owner != id) {
+                        throw emailTaken(updated.getEmail());
+                    }
+                    idsByEmail.remove(current.getEmail(), id);
+                }
+                return updated;
+            });
+            if (result != null) {
+                records.accept(saved(result));
+            }
+            return result;
+        });
+        if (stored == null) {
+            log.warn("Пользователь с id=" + id + " не найден");
+            throw new ObjectNotFoundException("Пользователь с id=" + id + " не найден");
         }
-        validateEmailUniqueness(user);
-        if (user.getName() == null || user.getName().isBlank()) {
-            existingUser.setName(user.getLogin());
-        } else {
-            existingUser.setName(user.getName());
-        }
-        existingUser.setLogin(user.getLogin());
-        existingUser.setEmail(user.getEmail());
-        existingUser.setBirthday(user.getBirthday());
-        return existingUser;
+        return copy(stored);
     }
 
     @Override
     public User findById(int userId) {
-        User user = userStorage.get(userId);
+        User user = users.get(userId);
         if (user == null) {
             log.warn("Пользователь с id=" + userId + " не найден");
             throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
         }
-        return user;
+        return copy(user);
+    }
+
+    @Override
+    public boolean existsById(int userId) {
+        return users.containsKey(userId);
     }
 
     @Override
     public void addFriends(Integer userId, Integer friendId) {
-//        if (userId.equals(friendId)) {
-//            log.warn("Указаны одинаковые Id пользователей. Попытка добавления самого себя в друзья");
-//            throw new IncorrectParameterException("Указаны одинаковые Id пользователей. Попытка добавления самого себя в друзья");
-//        }
-//        User user = findUserById(userId);
-//        User friend = findUserById(friendId);
-//        if (user.getFriends().contains(friendId)) {
-//            log.info("Пользователи уже друзья");
-//            throw new IncorrectParameterException("Пользователи уже друзья");
-//        }
-//        user.getFriends().add(friendId);
-//        friend.getFriends().add(userId);
+        requireUser(userId);
+        requireUser(friendId);
+        if (userId.equals(friendId)) {
+            log.warn("Нельзя добавить себя в друзья.");
+            throw new IncorrectParameterException("Нельзя добавить себя в друзья.");
+        }
+        journal.write(records -> {
+            if (!friendGraph.add(userId, friendId)) {
+                log.info("Пользователь с id={} уже является другом пользователя id={}", friendId, userId);
+                throw new IncorrectParameterException("Пользователи уже друзья.");
+            }
+            if (!existsById(userId) || !existsById(friendId)) {
+                friendGraph.remove(userId, friendId);
+                throw new ObjectNotFoundException("Пользователь удалён во время добавления в друзья");
+            }
+            records.accept(new JournalRecord.FriendAdded(userId, friendId));
+            return null;
+        });
+        log.info("Пользователь с id={} добавлен в друзья к пользователю id={}", friendId, userId);
     }
 
     @Override
     public void deleteFriends(Integer userId, Integer friendId) {
-//        User user = findUserById(userId);
-//        User friend = findUserById(friendId);
-//        user.getFriends().remove(friendId);
-//        friend.getFriends().remove(userId);
+        requireUser(userId);
+        requireUser(friendId);
+        journal.write(records -> {
+            if (friendGraph.remove(userId, friendId)) {
+                records.accept(new JournalRecord.FriendRemoved(userId, friendId));
+            }
+            return null;
+        });
+        log.info("Пользователь с id={} удалён из друзей пользователя id={}", friendId, userId);
     }
 
     @Override
     public List<User> getFriendsThisUser(Integer userId) {
-//        User user = findUserById(userId);
-//        return user.getFriends().stream()
-//                .map(userStorage::get)
-//                .filter(Objects::nonNull)
-//                .collect(Collectors.toList());
-        return List.of();
+        requireUser(userId);
+        return findByIds(friendGraph.friends(userId));
+    }
+
+    @Override
+    public List<User> getFriendsPage(int userId, int afterId, int limit) {
+        requireUser(userId);
+        return findByIds(friendGraph.friendsAfter(userId, afterId, limit));
+    }
+
+    @Override
+    public int getFriendsCount(int userId) {
+        requireUser(userId);
+        return friendGraph.degree(userId);
     }
 
     @Override
     public List<User> getCommonFriends(Integer userId, Integer otherId) {
-//        User user = findUserById(userId);
-//        User otherUser = findUserById(otherId);
-//        return user.getFriends().stream()
-//                .filter(e -> otherUser.getFriends().contains(e))
-//                .map(id -> findUserById(id))
-//                .collect(Collectors.toList());
-        return List.of();
+        requireUser(userId);
+        requireUser(otherId);
+        return findByIds(friendGraph.common(userId, otherId));
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int limit) {
+        requireUser(userId);
+        List<FriendSuggestion> suggestions = new ArrayList<>();
+        for (ScoredId candidate : friendGraph.suggest(userId, limit, ForkJoinPool.commonPool())) {
+            User user = users.get(candidate.id());
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(copy(user), candidate.score()));
+            }
+        }
+        return suggestions;
     }
 
     @Override
     public List<User> getAll() {
-        return new ArrayList<>(userStorage.values());
+        return users.values().stream().map(InMemoryUserStorage::copy).toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        users.values().forEach(user -> consumer.accept(copy(user)));
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(InMemoryUserStorage::copy)
+                .toList();
+    }
+
+    /**
+     * Применяет запись журнала о пользователях или дружбе без проверок; {@code false} — запись не отсюда.
+     */
+    boolean restore(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.UserSaved saved -> {
+                User user = new User(saved.id(), saved.email(), saved.login(), saved.name(), saved.birthday());
+                User previous = users.put(user.getId(), user);
+                if (previous != null) {
+                    idsByEmail.remove(previous.getEmail(), user.getId());
+                }
+                idsByEmail.put(user.getEmail(), user.getId());
+                nextId.accumulateAndGet(user.getId() + 1, Math::max);
+            }
+            case JournalRecord.UserDeleted deleted -> removeUser(deleted.id());
+            case JournalRecord.UserSequence sequence -> nextId.accumulateAndGet(sequence.nextId(), Math::max);
+            case JournalRecord.FriendAdded link -> friendGraph.add(link.userId(), link.friendId());
+            case JournalRecord.FriendRemoved link -> friendGraph.remove(link.userId(), link.friendId());
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Текущее состояние в виде записей журнала: сначала пользователи, затем дружба и следующий id.
+     */
+    void export(Consumer<JournalRecord> records) {
+        users.values().forEach(user -> records.accept(saved(user)));
+        for (Integer userId : users.keySet()) {
+            for (int friendId : friendGraph.friends(userId)) {
+                records.accept(new JournalRecord.FriendAdded(userId, friendId));
+            }
+        }
+        records.accept(new JournalRecord.UserSequence(nextId.get()));
+    }
+
+    private boolean removeUser(int userId) {
+        User removed = users.remove(userId);
+        if (removed == null) {
+            return false;
+        }
+        idsByEmail.remove(removed.getEmail(), userId);
+        friendGraph.removeUser(userId);
+        deleteListeners.forEach(listener -> listener.accept(userId));
+        return true;
+    }
+
+    private List<User> findByIds(int[] userIds) {
+        List<User> result = new ArrayList<>(userIds.length);
+        for (int userId : userIds) {
+            User user = users.get(userId);
+            if (user != null) {
+                result.add(copy(user));
+            }
+        }
+        return result;
+    }
+
+    private void requireUser(int userId) {
+        if (!existsById(userId)) {
+            log.warn("Пользователь с id=" + userId + " не найден");
+            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private IncorrectParameterException emailTaken(String email) {
+        log.info("Пользователь с электронной почтой уже зарегистрирован.");
+        return new IncorrectParameterException(
+                String.format("Пользователь с электронной почтой %s уже зарегистрирован.", email)
+        );
+    }
+
+    private static JournalRecord saved(User user) {
+        return new JournalRecord.UserSaved(user.getId(), user.getEmail(), user.getLogin(), user.getName(),
+                user.getBirthday());
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
     }
 }
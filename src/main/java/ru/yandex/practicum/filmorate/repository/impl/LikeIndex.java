@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.repository.index.ScoredId;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Матрица лайков из {@code film_like} в памяти. Хранилища сообщают о каждом лайке и его снятии;
+ * изменение применяется сразу и отменяется, если транзакция откатится.
+ */
+@Component
+@Profile("!in-memory")
+public class LikeIndex {
+    private static final Logger log = LoggerFactory.getLogger(LikeIndex.class);
+
+    private final LikeMatrix matrix = new LikeMatrix();
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+
+    public LikeIndex(JdbcTemplate jdbcTemplate,
+                     @Value("${filmorate.recommendations.neighbours:50}") int neighbours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+        reload();
+    }
+
+    public void reload() {
+        int[][] pairs = {new int[1024], new int[1024]};
+        int[] count = {0};
+        jdbcTemplate.query("SELECT user_id, film_id FROM film_like", rs -> {
+            if (count[0] == pairs[0].length) {
+                pairs[0] = Arrays.copyOf(pairs[0], count[0] * 2);
+                pairs[1] = Arrays.copyOf(pairs[1], count[0] * 2);
+            }
+            pairs[0][count[0]] = rs.getInt("user_id");
+            pairs[1][count[0]] = rs.getInt("film_id");
+            count[0]++;
+        });
+        matrix.rebuild(pairs[0], pairs[1], count[0]);
+        log.info("Матрица лайков загружена: {} лайков", count[0]);
+    }
+
+    public void liked(int filmId, int userId) {
+        if (matrix.like(userId, filmId)) {
+            Rollbacks.onRollback(() -> matrix.unlike(userId, filmId));
+        }
+    }
+
+    public void unliked(int filmId, int userId) {
+        if (matrix.unlike(userId, filmId)) {
+            Rollbacks.onRollback(() -> matrix.like(userId, filmId));
+        }
+    }
+
+    public void userDeleted(int userId) {
+        int[] films = matrix.removeUser(userId);
+        if (films.length > 0) {
+            Rollbacks.onRollback(() -> {
+                for (int filmId : films) {
+                    matrix.like(userId, filmId);
+                }
+            });
+        }
+    }
+
+    public boolean contains(int filmId, int userId) {
+        return matrix.contains(userId, filmId);
+    }
+
+    public List<ScoredId> recommend(int userId, int limit) {
+        return matrix.recommend(userId, neighbours, limit, ForkJoinPool.commonPool());
+    }
+}
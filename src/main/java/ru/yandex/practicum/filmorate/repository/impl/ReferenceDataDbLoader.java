@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.List;
+
+@Component
+@Profile("!in-memory")
+public class ReferenceDataDbLoader implements ReferenceDataLoader {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ReferenceDataDbLoader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Genre> loadGenres() {
+        return jdbcTemplate.query("SELECT genre_id, genre_title FROM genres ORDER BY genre_id",
+                (rs, rowNum) -> new Genre(rs.getInt("genre_id"), rs.getString("genre_title")));
+    }
+
+    @Override
+    public List<Rating> loadRatings() {
+        return jdbcTemplate.query("SELECT rating_id, rating_title FROM rating ORDER BY rating_id",
+                (rs, rowNum) -> new Rating(rs.getInt("rating_id"), rs.getString("rating_title")));
+    }
+}
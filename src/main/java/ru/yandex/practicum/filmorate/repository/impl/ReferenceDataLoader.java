@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.List;
+
+/**
+ * Откуда {@link ReferenceDataRegistry} читает справочники: списки упорядочены по id.
+ */
+public interface ReferenceDataLoader {
+    List<Genre> loadGenres();
+
+    List<Rating> loadRatings();
+}
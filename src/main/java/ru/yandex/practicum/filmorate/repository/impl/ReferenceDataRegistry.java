@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.List;
+
+/**
+ * Справочники жанров и рейтингов MPA, загруженные в память из {@link ReferenceDataLoader} профиля.
+ * Таблицы почти не меняются, поэтому хранятся неизменяемые массивы, индексированные по id.
+ * При перезагрузке ({@code POST /actuator/referencedata}) собирается новый снимок и подменяется
+ * целиком одной записью. Сами жанры и рейтинги неизменяемы, поэтому экземпляры снимка можно отдавать
+ * наружу и хранить в фильмах без копирования.
+ */
+@Component
+public class ReferenceDataRegistry {
+    private final Logger log = LoggerFactory.getLogger(ReferenceDataRegistry.class);
+    private final ReferenceDataLoader loader;
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Genre[] genresById, List<Genre> genres, Rating[] ratingsById, List<Rating> ratings) {
+    }
+
+    @Autowired
+    public ReferenceDataRegistry(ReferenceDataLoader loader) {
+        this.loader = loader;
+        reload();
+    }
+
+    public void reload() {
+        List<Genre> genres = List.copyOf(loader.loadGenres());
+        List<Rating> ratings = List.copyOf(loader.loadRatings());
+        Genre[] genresById = new Genre[genres.isEmpty() ? 0 : genres.get(genres.size() - 1).getId() + 1];
+        for (Genre genre : genres) {
+            genresById[genre.getId()] = genre;
+        }
+        Rating[] ratingsById = new Rating[ratings.isEmpty() ? 0 : ratings.get(ratings.size() - 1).getId() + 1];
+        for (Rating rating : ratings) {
+            ratingsById[rating.getId()] = rating;
+        }
+        snapshot = new Snapshot(genresById, genres, ratingsById, ratings);
+        log.info("Загружены справочники: жанров {}, рейтингов {}", genres.size(), ratings.size());
+    }
+
+    public List<Genre> getGenres() {
+        return snapshot.genres();
+    }
+
+    public List<Rating> getRatings() {
+        return snapshot.ratings();
+    }
+
+    public boolean hasGenre(int genreId) {
+        return findGenre(genreId) != null;
+    }
+
+    public boolean hasRating(int ratingId) {
+        return findRating(ratingId) != null;
+    }
+
+    public Genre getGenre(int genreId) {
+        Genre genre = findGenre(genreId);
+        if (genre == null) {
+            log.warn("Жанр с id={} не найден", genreId);
+            throw new ObjectNotFoundException("Жанр с id=" + genreId + " не найден");
+        }
+        return genre;
+    }
+
+    public Rating getRating(int ratingId) {
+        Rating rating = findRating(ratingId);
+        if (rating == null) {
+            log.warn("Рейтинг с id={} не найден", ratingId);
+            throw new ObjectNotFoundException("Рейтинг с id=" + ratingId + " не найден");
+        }
+        return rating;
+    }
+
+    /**
+     * Общий экземпляр жанра из справочника; если жанра в снимке ещё нет, создаётся по данным строки.
+     */
+    public Genre canonicalGenre(int genreId, String title) {
+        Genre genre = findGenre(genreId);
+        return genre != null ? genre : new Genre(genreId, title);
+    }
+
+    public Rating canonicalRating(int ratingId, String title) {
+        Rating rating = findRating(ratingId);
+        return rating != null ? rating : new Rating(ratingId, title);
+    }
+
+    private Genre findGenre(int genreId) {
+        Genre[] genres = snapshot.genresById();
+        return genreId >= 0 && genreId < genres.length ? genres[genreId] : null;
+    }
+
+    private Rating findRating(int ratingId) {
+        Rating[] ratings = snapshot.ratingsById();
+        return ratingId >= 0 && ratingId < ratings.length ? ratings[ratingId] : null;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Компенсация изменений индексов в памяти, которые применяются сразу, а не после фиксации:
+ * если текущая транзакция откатится, выполняется обратное действие.
+ */
+final class Rollbacks {
+    private Rollbacks() {
+    }
+
+    static void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+}
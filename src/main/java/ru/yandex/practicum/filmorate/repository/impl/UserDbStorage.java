@@ -2,30 +2,79 @@ package ru.yandex.practicum.filmorate.repository.impl;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.cache.UserCache;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.index.FriendGraph;
+import ru.yandex.practicum.filmorate.repository.index.ScoredId;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 @Component("userDbStorage")
+@Profile("!in-memory")
 public class UserDbStorage implements UserStorage {
     private final Logger log = LoggerFactory.getLogger(UserDbStorage.class);
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    private static final int CONFIRMED_STATUS = 2;
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final FilmCache filmCache;
+    private final UserCache userCache;
+    private final LikeIndex likeIndex;
+    private final ExistingIds existingIds;
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendGraph friendGraph = new FriendGraph();
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         FilmCache filmCache, UserCache userCache, LikeIndex likeIndex,
+                         FilmPopularityIndex popularityIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.filmCache = filmCache;
+        this.userCache = userCache;
+        this.likeIndex = likeIndex;
+        this.popularityIndex = popularityIndex;
+        this.existingIds = new ExistingIds(jdbcTemplate, "SELECT user_id FROM users");
+        loadFriendGraph();
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
     }
 
     @Override
@@ -49,18 +98,103 @@ public class UserDbStorage implements UserStorage {
             return ps;
         }, keyHolder);
         user.setId(keyHolder.getKey().intValue());
+        existingIds.added(user.getId());
+        userCache.put(user);
         log.info("Создан новый пользователь: {} (id={})", user.getName(), user.getId());
         return user;
     }
 
     @Override
+    public List<BatchItemResult> createAll(List<User> users) {
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        Set<String> batchEmails = new HashSet<>();
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                validateEmailFormat(user);
+            } catch (IncorrectParameterException e) {
+                results[i] = BatchItemResult.failed(i, e.getParameter());
+                continue;
+            }
+            if (user.getBirthday() == null) {
+                results[i] = BatchItemResult.failed(i, "Дата рождения не может быть пустой.");
+                continue;
+            }
+            if (!batchEmails.add(user.getEmail())) {
+                results[i] = BatchItemResult.failed(i, String.format(
+                        "Пользователь с электронной почтой %s уже есть в пакете.", user.getEmail()));
+                continue;
+            }
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+            valid.add(i);
+        }
+        for (int from = 0; from < valid.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = new ArrayList<>(valid.subList(from, Math.min(from + BATCH_CHUNK_SIZE, valid.size())));
+            Set<String> registered = findRegisteredEmails(chunk.stream().map(i -> users.get(i).getEmail()).toList());
+            chunk.removeIf(i -> {
+                String email = users.get(i).getEmail();
+                if (registered.contains(email)) {
+                    results[i] = BatchItemResult.failed(i, String.format(
+                            "Пользователь с электронной почтой %s уже зарегистрирован.", email));
+                    return true;
+                }
+                return false;
+            });
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            try {
+                chunkTransaction.executeWithoutResult(status -> insertUsers(users, chunk));
+                chunk.forEach(i -> {
+                    existingIds.added(users.get(i).getId());
+                    results[i] = BatchItemResult.created(i, users.get(i).getId());
+                });
+            } catch (DataAccessException e) {
+                log.warn("Пакет пользователей не записан, повтор по одному: {}", e.getMessage());
+                for (Integer i : chunk) {
+                    try {
+                        chunkTransaction.executeWithoutResult(status -> insertUsers(users, List.of(i)));
+                        existingIds.added(users.get(i).getId());
+                        results[i] = BatchItemResult.created(i, users.get(i).getId());
+                    } catch (DataAccessException ex) {
+                        results[i] = BatchItemResult.failed(i, ex.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+        log.info("Пакетная загрузка пользователей: получено {}, записано {}", users.size(),
+                Arrays.stream(results).filter(r -> r.getStatus() == BatchItemResult.Status.CREATED).count());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional
     public void delete(int userId) {
+        List<Integer> likedFilmIds = jdbcTemplate.queryForList(
+                "SELECT film_id FROM film_like WHERE user_id = ?", Integer.class, userId);
+        String likesSql = """
+                UPDATE films
+                SET likes = likes - 1
+                WHERE film_id IN (SELECT film_id FROM film_like WHERE user_id = ?)
+                """;
+        jdbcTemplate.update(likesSql, userId);
+        filmCache.invalidateAll(likedFilmIds);
         String sql = "DELETE FROM users WHERE user_id = ?";
         int rowsAffected = jdbcTemplate.update(sql, userId);
         if (rowsAffected == 0) {
             log.warn("Пользователь с id={} не найден для удаления.", userId);
             throw new IncorrectParameterException("Пользователь с указанным id не найден.");
         }
+        existingIds.removed(userId);
+        userCache.invalidate(userId);
+        int[][] links = friendGraph.removeUser(userId);
+        Rollbacks.onRollback(() -> restoreLinks(userId, links));
+        likeIndex.userDeleted(userId);
+        likedFilmIds.forEach(popularityIndex::decrement);
+        Rollbacks.onRollback(() -> likedFilmIds.forEach(popularityIndex::increment));
         log.info("Пользователь с id={} успешно удалён.", userId);
     }
 
@@ -76,10 +210,11 @@ public class UserDbStorage implements UserStorage {
                 SET name = ?, login = ?, email = ?, birthday = ?
                 WHERE user_id = ?
                 """;
+        String name = user.getName() == null || user.getName().isBlank()
+                ? user.getLogin()
+                : user.getName();
         int rows = jdbcTemplate.update(sql,
-                user.getName() == null || user.getName().isBlank()
-                        ? user.getLogin()
-                        : user.getName(),
+                name,
                 user.getLogin(),
                 user.getEmail(),
                 Date.valueOf(user.getBirthday()),
@@ -88,100 +223,78 @@ public class UserDbStorage implements UserStorage {
         if (rows == 0) {
             throw new ObjectNotFoundException("Пользователь с id=" + user.getId() + " не найден");
         }
-        return findById(user.getId());
+        userCache.invalidate(user.getId());
+        return new User(user.getId(), user.getEmail(), user.getLogin(), name, user.getBirthday());
     }
 
     @Override
     public User findById(int userId) {
-        List<User> users = jdbcTemplate.query("select * from users where user_id = ?", userRowMapper(), userId);
-        if (users.isEmpty()) {
-            log.warn("Пользователь с id=" + userId + " не найден");
-            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
-        }
-        return users.get(0);
+        return userCache.get(userId, this::loadById);
+    }
+
+    @Override
+    public boolean existsById(int userId) {
+        return existingIds.contains(userId);
     }
 
     @Override
     public void addFriends(Integer userId, Integer friendId) {
-        findById(userId);
-        findById(friendId);
+        requireUser(userId);
+        requireUser(friendId);
         if (userId.equals(friendId)) {
             log.warn("Нельзя добавить себя в друзья.");
             throw new IncorrectParameterException("Нельзя добавить себя в друзья.");
         }
-        String checkSql = "SELECT COUNT(*) FROM friends WHERE user_id = ? AND friend_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId, friendId);
-
-        if (count > 0) {
-            log.info("Пользователь с id={} уже является другом пользователя id={}", friendId, userId);
-            throw new IncorrectParameterException("Пользователи уже друзья.");
-            //    return;
+        // Граф хранит только подтверждённые связи: заявку в другом статусе ловит первичный ключ.
+        if (friendGraph.contains(userId, friendId)) {
+            throw alreadyFriends(userId, friendId);
         }
         String sql = "INSERT INTO friends (user_id, friend_id, friend_status_id) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, userId, friendId, 2);
+        try {
+            jdbcTemplate.update(sql, userId, friendId, CONFIRMED_STATUS);
+        } catch (DuplicateKeyException e) {
+            throw alreadyFriends(userId, friendId);
+        }
+        friendGraph.add(userId, friendId);
+        Rollbacks.onRollback(() -> friendGraph.remove(userId, friendId));
         log.info("Пользователь с id={} добавлен в друзья к пользователю id={}", friendId, userId);
     }
 
     @Override
     public void deleteFriends(Integer userId, Integer friendId) {
-        findById(userId);
-        findById(friendId);
+        requireUser(userId);
+        requireUser(friendId);
         String sql = "DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        int rows = jdbcTemplate.update(sql, userId, friendId);
+        if (rows > 0 && friendGraph.remove(userId, friendId)) {
+            Rollbacks.onRollback(() -> friendGraph.add(userId, friendId));
+        }
         log.info("Пользователь с id={} удалён из друзей пользователя id={}", friendId, userId);
     }
 
-
     @Override
     public List<User> getFriendsThisUser(Integer userId) {
-        findById(userId);
-        String sql = """
-                SELECT uf.user_id,
-                       uf.name,
-                       uf.email,
-                       uf.login,
-                       uf.birthday
-                FROM friends f
-                JOIN users uf ON f.friend_id = uf.user_id
-                WHERE f.user_id = ?
-                  AND f.friend_status_id = ?
-                """;
+        requireUser(userId);
+        return findByIds(friendGraph.friends(userId));
+    }
 
-        return jdbcTemplate.query(
-                sql,
-                userRowMapper(),
-                userId,
-                2
-        );
+    @Override
+    public List<User> getFriendsPage(int userId, int afterId, int limit) {
+        requireUser(userId);
+        return findByIds(friendGraph.friendsAfter(userId, afterId, limit));
     }
 
     @Override
-    public List<User> getCommonFriends(Integer userId, Integer otherId) {
-        findById(userId);
-        findById(otherId);
-        String sql = """
-                SELECT u.user_id,
-                       u.name,
-                       u.email,
-                       u.login,
-                       u.birthday
-                FROM friends f1
-                JOIN friends f2
-                     ON f1.friend_id = f2.friend_id
-                JOIN users u
-                     ON u.user_id = f1.friend_id
-                WHERE f1.user_id = ?
-                  AND f2.user_id = ?
-                  AND f1.friend_status_id = 2
-                  AND f2.friend_status_id = 2
-                """;
-        List<User> commonFriends = jdbcTemplate.query(
-                sql,
-                userRowMapper(),
-                userId,
-                otherId
-        );
+    public int getFriendsCount(int userId) {
+        requireUser(userId);
+        return friendGraph.degree(userId);
+    }
 
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId) {
+        requireUser(userId);
+        requireUser(otherId);
+        List<User> commonFriends = findByIds(friendGraph.common(userId, otherId));
         if (commonFriends.isEmpty()) {
             log.debug("Общие друзья для пользователей id={} и id={} не найдены", userId, otherId);
         } else {
@@ -191,11 +304,47 @@ public class UserDbStorage implements UserStorage {
         return commonFriends;
     }
 
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int limit) {
+        requireUser(userId);
+        List<ScoredId> candidates = friendGraph.suggest(userId, limit, ForkJoinPool.commonPool());
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : findByIds(candidates.stream().mapToInt(ScoredId::id).toArray())) {
+            users.put(user.getId(), user);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(candidates.size());
+        for (ScoredId candidate : candidates) {
+            User user = users.get(candidate.id());
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(user, candidate.score()));
+            }
+        }
+        log.debug("Для пользователя id={} подобрано {} кандидатов в друзья", userId, suggestions.size());
+        return suggestions;
+    }
+
     @Override
     public List<User> getAll() {
         return jdbcTemplate.query("select * from users", userRowMapper());
     }
 
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        RowMapper<User> rowMapper = userRowMapper();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT * FROM users ORDER BY user_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, userRowMapper(), afterId, limit);
+    }
+
     @Override
     public void validateEmailFormat(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
@@ -204,16 +353,121 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    private User loadById(int userId) {
+        List<User> users = jdbcTemplate.query("select * from users where user_id = ?", userRowMapper(), userId);
+        if (users.isEmpty()) {
+            log.warn("Пользователь с id=" + userId + " не найден");
+            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        return users.get(0);
+    }
+
+    private List<User> findByIds(int[] userIds) {
+        if (userIds.length == 0) {
+            return List.of();
+        }
+        return userCache.getAll(Arrays.stream(userIds).boxed().toList(), this::loadByIds);
+    }
+
+    private Map<Integer, User> loadByIds(List<Integer> userIds) {
+        Map<Integer, User> users = new HashMap<>();
+        RowMapper<User> rowMapper = userRowMapper();
+        for (int from = 0; from < userIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, userIds.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT * FROM users WHERE user_id IN (%s)".formatted(placeholders), rs -> {
+                User user = rowMapper.mapRow(rs, rs.getRow());
+                users.put(user.getId(), user);
+            }, chunk.toArray());
+        }
+        return users;
+    }
+
+    private void loadFriendGraph() {
+        int[][] edges = {new int[1024], new int[1024]};
+        int[] count = {0};
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friends WHERE friend_status_id = ?", rs -> {
+            if (count[0] == edges[0].length) {
+                edges[0] = Arrays.copyOf(edges[0], count[0] * 2);
+                edges[1] = Arrays.copyOf(edges[1], count[0] * 2);
+            }
+            edges[0][count[0]] = rs.getInt("user_id");
+            edges[1][count[0]] = rs.getInt("friend_id");
+            count[0]++;
+        }, CONFIRMED_STATUS);
+        friendGraph.rebuild(edges[0], edges[1], count[0]);
+        log.info("Граф дружбы загружен: {} связей", count[0]);
+    }
+
+    private void restoreLinks(int userId, int[][] links) {
+        for (int friendId : links[0]) {
+            friendGraph.add(userId, friendId);
+        }
+        for (int followerId : links[1]) {
+            friendGraph.add(followerId, userId);
+        }
+    }
+
+    private void requireUser(int userId) {
+        if (!existsById(userId)) {
+            log.warn("Пользователь с id=" + userId + " не найден");
+            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private IncorrectParameterException alreadyFriends(int userId, int friendId) {
+        log.info("Пользователь с id={} уже является другом пользователя id={}", friendId, userId);
+        return new IncorrectParameterException("Пользователи уже друзья.");
+    }
+
     private RowMapper<User> userRowMapper() {
         return (rs, rowNum) -> new User(
                 rs.getInt("user_id"),
                 rs.getString("email"),
                 rs.getString("login"),
                 rs.getString("name"),
-                LocalDate.parse(rs.getString("birthday"))
+                birthday(rs.getDate("birthday"))
         );
     }
 
+    private static LocalDate birthday(Date birthday) {
+        return birthday == null ? null : birthday.toLocalDate();
+    }
+
+    private Set<String> findRegisteredEmails(List<String> emails) {
+        String placeholders = String.join(",", Collections.nCopies(emails.size(), "?"));
+        String sql = "SELECT email FROM users WHERE email IN (%s)".formatted(placeholders);
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, emails.toArray()));
+    }
+
+    private void insertUsers(List<User> users, List<Integer> indexes) {
+        String sql = """
+                INSERT INTO users (name, email, login, birthday)
+                VALUES (?, ?, ?, ?)
+                """;
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"user_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        User user = users.get(indexes.get(i));
+                        ps.setString(1, user.getName());
+                        ps.setString(2, user.getEmail());
+                        ps.setString(3, user.getLogin());
+                        ps.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return indexes.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < indexes.size(); i++) {
+            users.get(indexes.get(i)).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+    }
+
     private void validateEmailUniqueness(User user) {
         String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
 
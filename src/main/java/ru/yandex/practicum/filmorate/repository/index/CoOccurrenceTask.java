@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Считает, сколько раз каждый id встречается в списках {@code reverse} для элементов
+ * {@code items[from..to)}: например, у скольких друзей пользователя есть общий с ним подписчик
+ * или сколько фильмов пользователя лайкнул другой пользователь. Диапазон делится пополам,
+ * пока работы больше порога. Вызывающий держит read lock владельца, поэтому списки не меняются.
+ */
+final class CoOccurrenceTask extends RecursiveTask<IntCounter> {
+    static final int PARALLEL_WORK = 8192;
+
+    private final SortedAdjacency reverse;
+    private final int[] items;
+    private final int from;
+    private final int to;
+
+    private CoOccurrenceTask(SortedAdjacency reverse, int[] items, int from, int to) {
+        this.reverse = reverse;
+        this.items = items;
+        this.from = from;
+        this.to = to;
+    }
+
+    static IntCounter count(SortedAdjacency reverse, int[] items, int size, ForkJoinPool pool) {
+        CoOccurrenceTask task = new CoOccurrenceTask(reverse, items, 0, size);
+        return task.work() > PARALLEL_WORK ? pool.invoke(task) : task.compute();
+    }
+
+    private long work() {
+        long work = 0;
+        for (int i = from; i < to; i++) {
+            work += reverse.size(items[i]);
+        }
+        return work;
+    }
+
+    @Override
+    protected IntCounter compute() {
+        long work = work();
+        if (to - from > 1 && work > PARALLEL_WORK) {
+            int middle = (from + to) >>> 1;
+            CoOccurrenceTask left = new CoOccurrenceTask(reverse, items, from, middle);
+            CoOccurrenceTask right = new CoOccurrenceTask(reverse, items, middle, to);
+            left.fork();
+            IntCounter counter = right.compute();
+            counter.addAll(left.join());
+            return counter;
+        }
+        IntCounter counter = new IntCounter((int) Math.min(work, 1 << 20));
+        for (int i = from; i < to; i++) {
+            int count = reverse.size(items[i]);
+            if (count == 0) {
+                continue;
+            }
+            int[] list = reverse.values[items[i]];
+            for (int j = 0; j < count; j++) {
+                counter.increment(list[j]);
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков.
+ * Фильмы хранятся в массиве, отсортированном по убыванию лайков; фильмы с одинаковым числом лайков
+ * образуют непрерывный блок. Лайк или его снятие меняет счётчик на единицу, поэтому фильм достаточно
+ * обменять с крайним элементом своего блока — обновление стоит O(1), выборка топа — O(count).
+ * Один экземпляр на приложение: его меняют только хранилища фильмов и пользователей, сервис фильмов
+ * читает из него места. Каждое изменение увеличивает версию, по которой сверка отличает снимок,
+ * прочитанный до чужого лайка, от актуального.
+ */
+@Component
+public class FilmPopularityIndex {
+    private static final int ABSENT = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private int[] order = new int[16];
+    private int size;
+    private int[] positionById = new int[0];
+    private int[] likesById = new int[0];
+    private final Map<Integer, Block> blocks = new HashMap<>();
+    private long version;
+
+    private static final class Block {
+        private int start;
+        private int length;
+
+        private Block(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    public void rebuild(Map<Integer, Integer> likesByFilm) {
+        rebuild(likesByFilm, -1);
+    }
+
+    /**
+     * Перестраивает индекс по снимку, только если индекс не менялся с версии {@code expectedVersion},
+     * взятой до чтения снимка. Иначе снимок мог не увидеть последние лайки, и индекс остаётся прежним.
+     */
+    public boolean rebuild(long expectedVersion, Map<Integer, Integer> likesByFilm) {
+        return rebuild(likesByFilm, expectedVersion);
+    }
+
+    private boolean rebuild(Map<Integer, Integer> likesByFilm, long expectedVersion) {
+        Integer[] ids = likesByFilm.keySet().toArray(new Integer[0]);
+        Arrays.sort(ids, Comparator.comparing((Integer id) -> likesByFilm.get(id)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        int maxId = Arrays.stream(ids).mapToInt(Integer::intValue).max().orElse(0);
+        int[] newOrder = new int[Math.max(16, ids.length)];
+        int[] newPositions = new int[maxId + 1];
+        int[] newLikes = new int[maxId + 1];
+        Arrays.fill(newPositions, ABSENT);
+        Map<Integer, Block> newBlocks = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            int filmId = ids[i];
+            int likes = likesByFilm.get(filmId);
+            newOrder[i] = filmId;
+            newPositions[filmId] = i;
+            newLikes[filmId] = likes;
+            Block block = newBlocks.get(likes);
+            if (block == null) {
+                newBlocks.put(likes, new Block(i, 1));
+            } else {
+                block.length++;
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (expectedVersion >= 0 && expectedVersion != version) {
+                return false;
+            }
+            order = newOrder;
+            size = ids.length;
+            positionById = newPositions;
+            likesById = newLikes;
+            blocks.clear();
+            blocks.putAll(newBlocks);
+            version++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addFilm(int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            version++;
+            insert(filmId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            version++;
+            if (!contains(filmId)) {
+                return;
+            }
+            while (likesById[filmId] > 0) {
+                stepDown(filmId);
+            }
+            swap(positionById[filmId], size - 1);
+            Block block = blocks.get(0);
+            if (--block.length == 0) {
+                blocks.remove(0);
+            }
+            positionById[filmId] = ABSENT;
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void increment(int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            version++;
+            insert(filmId);
+            stepUp(filmId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void decrement(int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            version++;
+            if (contains(filmId) && likesById[filmId] > 0) {
+                stepDown(filmId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setLikes(int filmId, int likes) {
+        long stamp = lock.writeLock();
+        try {
+            version++;
+            insert(filmId);
+            while (likesById[filmId] < likes) {
+                stepUp(filmId);
+            }
+            while (likesById[filmId] > likes) {
+                stepDown(filmId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int[] top(int count) {
+        long stamp = lock.tryOptimisticRead();
+        int[] currentOrder = order;
+        int n = Math.min(Math.min(count, size), currentOrder.length);
+        int[] result = Arrays.copyOf(currentOrder, Math.max(n, 0));
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return Arrays.copyOf(order, Math.min(count, size));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Место фильма в рейтинге начиная с 1 или 0, если фильма нет в индексе.
+     */
+    public int rank(int filmId) {
+        long stamp = lock.tryOptimisticRead();
+        int rank = positionOf(filmId) + 1;
+        if (lock.validate(stamp)) {
+            return rank;
+        }
+        stamp = lock.readLock();
+        try {
+            return positionOf(filmId) + 1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int likes(int filmId) {
+        long stamp = lock.tryOptimisticRead();
+        int[] currentLikes = likesById;
+        int likes = filmId >= 0 && filmId < currentLikes.length ? currentLikes[filmId] : 0;
+        if (lock.validate(stamp)) {
+            return likes;
+        }
+        stamp = lock.readLock();
+        try {
+            return filmId >= 0 && filmId < likesById.length ? likesById[filmId] : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long version() {
+        long stamp = lock.readLock();
+        try {
+            return version;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int positionOf(int filmId) {
+        int[] positions = positionById;
+        return filmId >= 0 && filmId < positions.length ? positions[filmId] : ABSENT;
+    }
+
+    private boolean contains(int filmId) {
+        return positionOf(filmId) != ABSENT;
+    }
+
+    private void insert(int filmId) {
+        if (contains(filmId)) {
+            return;
+        }
+        ensureIdCapacity(filmId);
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size * 2);
+        }
+        order[size] = filmId;
+        positionById[filmId] = size;
+        likesById[filmId] = 0;
+        Block block = blocks.get(0);
+        if (block == null) {
+            blocks.put(0, new Block(size, 1));
+        } else {
+            block.length++;
+        }
+        size++;
+    }
+
+    private void stepUp(int filmId) {
+        int likes = likesById[filmId];
+        Block current = blocks.get(likes);
+        int target = current.start;
+        swap(positionById[filmId], target);
+        current.start++;
+        if (--current.length == 0) {
+            blocks.remove(likes);
+        }
+        Block upper = blocks.get(likes + 1);
+        if (upper == null) {
+            blocks.put(likes + 1, new Block(target, 1));
+        } else {
+            upper.length++;
+        }
+        likesById[filmId] = likes + 1;
+    }
+
+    private void stepDown(int filmId) {
+        int likes = likesById[filmId];
+        Block current = blocks.get(likes);
+        int target = current.start + current.length - 1;
+        swap(positionById[filmId], target);
+        if (--current.length == 0) {
+            blocks.remove(likes);
+        }
+        Block lower = blocks.get(likes - 1);
+        if (lower == null) {
+            blocks.put(likes - 1, new Block(target, 1));
+        } else {
+            lower.start--;
+            lower.length++;
+        }
+        likesById[filmId] = likes - 1;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        int first = order[i];
+        int second = order[j];
+        order[i] = second;
+        order[j] = first;
+        positionById[second] = i;
+        positionById[first] = j;
+    }
+
+    private void ensureIdCapacity(int filmId) {
+        if (filmId < positionById.length) {
+            return;
+        }
+        int capacity = Math.max(filmId + 1, positionById.length * 2);
+        int oldLength = positionById.length;
+        positionById = Arrays.copyOf(positionById, capacity);
+        Arrays.fill(positionById, oldLength, capacity, ABSENT);
+        likesById = Arrays.copyOf(likesById, capacity);
+    }
+}
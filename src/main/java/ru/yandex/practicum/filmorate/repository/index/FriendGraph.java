@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Граф дружбы в памяти. Для каждого пользователя хранится отсортированный массив {@code int[]}
+ * id его друзей (исходящие связи) и отдельно — тех, кто добавил его в друзья (входящие связи,
+ * нужны для удаления пользователя). Массивы примитивные и с запасом ёмкости, поэтому даже
+ * у пользователя со 100 000 друзей нет упакованных {@code Integer}, а вставка — один сдвиг хвоста.
+ * Общие друзья считаются слиянием отсортированных массивов, а при сильной разнице размеров —
+ * галопирующим поиском по большему массиву.
+ * Рекомендации друзей обходят второй круг параллельно (fork/join) с примитивными счётчиками
+ * и ограниченной кучей лучших кандидатов.
+ */
+public class FriendGraph {
+    private static final int GALLOP_RATIO = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private final SortedAdjacency friends = new SortedAdjacency();
+    private final SortedAdjacency followers = new SortedAdjacency();
+
+    /**
+     * Полная перестройка по списку рёбер {@code userIds[i] -> friendIds[i]}.
+     */
+    public void rebuild(int[] userIds, int[] friendIds, int edgeCount) {
+        long stamp = lock.writeLock();
+        try {
+            friends.build(userIds, friendIds, edgeCount);
+            followers.build(friendIds, userIds, edgeCount);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean add(int userId, int friendId) {
+        long stamp = lock.writeLock();
+        try {
+            if (!friends.insert(userId, friendId)) {
+                return false;
+            }
+            followers.insert(friendId, userId);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(int userId, int friendId) {
+        long stamp = lock.writeLock();
+        try {
+            if (!friends.delete(userId, friendId)) {
+                return false;
+            }
+            followers.delete(friendId, userId);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет пользователя со всеми связями. Возвращает {друзья, подписчики} — по ним связи
+     * можно восстановить через {@link #add}.
+     */
+    public int[][] removeUser(int userId) {
+        long stamp = lock.writeLock();
+        try {
+            int[] outgoing = friends.copy(userId);
+            int[] incoming = followers.copy(userId);
+            for (int friendId : outgoing) {
+                followers.delete(friendId, userId);
+            }
+            for (int followerId : incoming) {
+                friends.delete(followerId, userId);
+            }
+            friends.clear(userId);
+            followers.clear(userId);
+            return new int[][]{outgoing, incoming};
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(int userId, int friendId) {
+        long stamp = lock.readLock();
+        try {
+            return friends.contains(userId, friendId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int degree(int userId) {
+        long stamp = lock.readLock();
+        try {
+            return friends.size(userId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int[] friends(int userId) {
+        long stamp = lock.readLock();
+        try {
+            return friends.copy(userId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Не более {@code limit} друзей с id больше {@code afterId}, по возрастанию id.
+     */
+    public int[] friendsAfter(int userId, int afterId, int limit) {
+        long stamp = lock.readLock();
+        try {
+            int size = friends.size(userId);
+            if (size == 0) {
+                return SortedAdjacency.EMPTY;
+            }
+            int[] values = friends.values[userId];
+            int from = Arrays.binarySearch(values, 0, size, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            return Arrays.copyOfRange(values, from, Math.min(size, from + Math.max(0, limit)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int[] common(int userId, int otherId) {
+        long stamp = lock.readLock();
+        try {
+            int sizeA = friends.size(userId);
+            int sizeB = friends.size(otherId);
+            if (sizeA == 0 || sizeB == 0) {
+                return SortedAdjacency.EMPTY;
+            }
+            int[] a = friends.values[userId];
+            int[] b = friends.values[otherId];
+            if (sizeA > sizeB) {
+                return intersect(b, sizeB, a, sizeA);
+            }
+            return intersect(a, sizeA, b, sizeB);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Не более {@code limit} пользователей, которых ещё нет в друзьях у {@code userId}, по убыванию
+     * числа общих друзей (в смысле {@link #common}), при равенстве — по возрастанию id.
+     * Кандидат с общим другом f — это тот, у кого f в друзьях, поэтому обходятся входящие связи
+     * друзей пользователя.
+     */
+    public List<ScoredId> suggest(int userId, int limit, ForkJoinPool pool) {
+        long stamp = lock.readLock();
+        try {
+            int size = friends.size(userId);
+            TopK top = new TopK(limit);
+            if (size == 0 || limit <= 0) {
+                return top.result();
+            }
+            int[] userFriends = friends.values[userId];
+            IntCounter counter = CoOccurrenceTask.count(followers, userFriends, size, pool);
+            for (int slot = 0; slot < counter.capacity(); slot++) {
+                int candidate = counter.keyAt(slot);
+                if (candidate != 0 && candidate != userId
+                        && Arrays.binarySearch(userFriends, 0, size, candidate) < 0) {
+                    top.offer(candidate, counter.countAt(slot));
+                }
+            }
+            return top.result();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static int[] intersect(int[] small, int smallSize, int[] large, int largeSize) {
+        int[] result = new int[smallSize];
+        int count = 0;
+        if ((long) smallSize * GALLOP_RATIO < largeSize) {
+            int from = 0;
+            for (int i = 0; i < smallSize && from < largeSize; i++) {
+                int value = small[i];
+                int bound = 1;
+                while (from + bound < largeSize && large[from + bound] < value) {
+                    bound <<= 1;
+                }
+                int found = Arrays.binarySearch(large, from + (bound >> 1), Math.min(largeSize, from + bound + 1), value);
+                if (found >= 0) {
+                    result[count++] = value;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smallSize && j < largeSize) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
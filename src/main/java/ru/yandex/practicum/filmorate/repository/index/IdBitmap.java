@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Множество существующих идентификаторов в виде битовой карты: один бит на id.
+ * Проверка существования — одно чтение слова без обращения к базе; отсутствие бита означает,
+ * что объекта точно нет. Миллион id занимает 128 КБ.
+ */
+public class IdBitmap {
+    private final StampedLock lock = new StampedLock();
+    private long[] words = new long[16];
+    private int cardinality;
+
+    public void rebuild(Iterable<Integer> ids) {
+        long[] newWords = new long[16];
+        int newCardinality = 0;
+        for (int id : ids) {
+            if (id < 0) {
+                continue;
+            }
+            int word = id >>> 6;
+            if (word >= newWords.length) {
+                newWords = Arrays.copyOf(newWords, Math.max(word + 1, newWords.length * 2));
+            }
+            long mask = 1L << id;
+            if ((newWords[word] & mask) == 0) {
+                newWords[word] |= mask;
+                newCardinality++;
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            words = newWords;
+            cardinality = newCardinality;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        long stamp = lock.tryOptimisticRead();
+        boolean present = test(words, id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                present = test(words, id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return present;
+    }
+
+    public void add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id не может быть отрицательным: " + id);
+        }
+        long stamp = lock.writeLock();
+        try {
+            int word = id >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            long mask = 1L << id;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                cardinality++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(int id) {
+        if (id < 0) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int word = id >>> 6;
+            long mask = 1L << id;
+            if (word < words.length && (words[word] & mask) != 0) {
+                words[word] &= ~mask;
+                cardinality--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return cardinality;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static boolean test(long[] words, int id) {
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+}
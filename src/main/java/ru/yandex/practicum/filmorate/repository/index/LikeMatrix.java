@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Разреженная матрица лайков «пользователь × фильм» в двух проекциях: отсортированные
+ * {@code int[]} фильмов каждого пользователя и пользователей каждого фильма.
+ * Рекомендации строятся коллаборативной фильтрацией по соседям: похожесть двух пользователей —
+ * число общих лайков, кандидат-фильм получает сумму похожестей соседей, которые его лайкнули.
+ */
+public class LikeMatrix {
+    private final StampedLock lock = new StampedLock();
+    private final SortedAdjacency filmsByUser = new SortedAdjacency();
+    private final SortedAdjacency usersByFilm = new SortedAdjacency();
+
+    /**
+     * Полная перестройка по парам {@code userIds[i]} лайкнул {@code filmIds[i]}.
+     */
+    public void rebuild(int[] userIds, int[] filmIds, int count) {
+        long stamp = lock.writeLock();
+        try {
+            filmsByUser.build(userIds, filmIds, count);
+            usersByFilm.build(filmIds, userIds, count);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean like(int userId, int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            if (!filmsByUser.insert(userId, filmId)) {
+                return false;
+            }
+            usersByFilm.insert(filmId, userId);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean unlike(int userId, int filmId) {
+        long stamp = lock.writeLock();
+        try {
+            if (!filmsByUser.delete(userId, filmId)) {
+                return false;
+            }
+            usersByFilm.delete(filmId, userId);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет все лайки пользователя и возвращает фильмы, которые он лайкал.
+     */
+    public int[] removeUser(int userId) {
+        long stamp = lock.writeLock();
+        try {
+            int[] films = filmsByUser.copy(userId);
+            for (int filmId : films) {
+                usersByFilm.delete(filmId, userId);
+            }
+            filmsByUser.clear(userId);
+            return films;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(int userId, int filmId) {
+        long stamp = lock.readLock();
+        try {
+            return filmsByUser.contains(userId, filmId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int[] likedFilms(int userId) {
+        long stamp = lock.readLock();
+        try {
+            return filmsByUser.copy(userId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int[] likers(int filmId) {
+        long stamp = lock.readLock();
+        try {
+            return usersByFilm.copy(filmId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int likeCount(int filmId) {
+        long stamp = lock.readLock();
+        try {
+            return usersByFilm.size(filmId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Не более {@code limit} фильмов, которые пользователь ещё не лайкал, по убыванию очка.
+     * Соседи — {@code neighbours} пользователей с наибольшим числом общих лайков; подсчёт
+     * общих лайков идёт параллельно по фильмам пользователя.
+     */
+    public List<ScoredId> recommend(int userId, int neighbours, int limit, ForkJoinPool pool) {
+        long stamp = lock.readLock();
+        try {
+            int size = filmsByUser.size(userId);
+            if (size == 0 || limit <= 0) {
+                return List.of();
+            }
+            int[] userFilms = filmsByUser.values[userId];
+            IntCounter overlap = CoOccurrenceTask.count(usersByFilm, userFilms, size, pool);
+            TopK nearest = new TopK(neighbours);
+            for (int slot = 0; slot < overlap.capacity(); slot++) {
+                int otherId = overlap.keyAt(slot);
+                if (otherId != 0 && otherId != userId && filmsByUser.size(otherId) > overlap.countAt(slot)) {
+                    nearest.offer(otherId, overlap.countAt(slot));
+                }
+            }
+            IntCounter scores = new IntCounter(limit * 4);
+            for (ScoredId neighbour : nearest.result()) {
+                int count = filmsByUser.size(neighbour.id());
+                int[] films = filmsByUser.values[neighbour.id()];
+                for (int i = 0; i < count; i++) {
+                    if (Arrays.binarySearch(userFilms, 0, size, films[i]) < 0) {
+                        scores.add(films[i], neighbour.score());
+                    }
+                }
+            }
+            TopK top = new TopK(limit);
+            for (int slot = 0; slot < scores.capacity(); slot++) {
+                if (scores.keyAt(slot) != 0) {
+                    top.offer(scores.keyAt(slot), scores.countAt(slot));
+                }
+            }
+            return top.result();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
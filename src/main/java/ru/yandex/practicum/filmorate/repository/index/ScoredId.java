@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+/**
+ * Id объекта и его очко в ранжировании (например, число общих друзей).
+ */
+public record ScoredId(int id, int score) {
+}
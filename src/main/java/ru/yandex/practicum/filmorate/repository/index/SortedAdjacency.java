@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.Arrays;
+
+/**
+ * Списки смежности, проиндексированные id: {@code values[id]} отсортирован на первых
+ * {@code sizes[id]} позициях, остаток массива — запас ёмкости. Не потокобезопасен:
+ * синхронизацию обеспечивает владелец.
+ */
+final class SortedAdjacency {
+    static final int[] EMPTY = new int[0];
+
+    int[][] values = new int[16][];
+    int[] sizes = new int[16];
+
+    void build(int[] from, int[] to, int edgeCount) {
+        int maxId = 15;
+        for (int i = 0; i < edgeCount; i++) {
+            maxId = Math.max(maxId, from[i]);
+        }
+        int[] newSizes = new int[maxId + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            newSizes[from[i]]++;
+        }
+        int[][] newValues = new int[maxId + 1][];
+        for (int u = 0; u <= maxId; u++) {
+            if (newSizes[u] > 0) {
+                newValues[u] = new int[newSizes[u]];
+            }
+        }
+        int[] fill = new int[maxId + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            newValues[from[i]][fill[from[i]]++] = to[i];
+        }
+        for (int[] list : newValues) {
+            if (list != null) {
+                Arrays.sort(list);
+            }
+        }
+        values = newValues;
+        sizes = newSizes;
+    }
+
+    int size(int id) {
+        return id >= 0 && id < sizes.length ? sizes[id] : 0;
+    }
+
+    boolean contains(int id, int value) {
+        int size = size(id);
+        return size > 0 && Arrays.binarySearch(values[id], 0, size, value) >= 0;
+    }
+
+    int[] copy(int id) {
+        int size = size(id);
+        return size == 0 ? EMPTY : Arrays.copyOf(values[id], size);
+    }
+
+    boolean insert(int id, int value) {
+        ensureCapacity(id);
+        int size = sizes[id];
+        int[] list = values[id];
+        if (list == null) {
+            list = new int[4];
+            values[id] = list;
+        }
+        int position = Arrays.binarySearch(list, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1) + 1);
+            values[id] = list;
+        }
+        System.arraycopy(list, position, list, position + 1, size - position);
+        list[position] = value;
+        sizes[id] = size + 1;
+        return true;
+    }
+
+    boolean delete(int id, int value) {
+        int size = size(id);
+        if (size == 0) {
+            return false;
+        }
+        int[] list = values[id];
+        int position = Arrays.binarySearch(list, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(list, position + 1, list, position, size - position - 1);
+        sizes[id] = size - 1;
+        return true;
+    }
+
+    void clear(int id) {
+        if (id >= 0 && id < sizes.length) {
+            values[id] = null;
+            sizes[id] = 0;
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= sizes.length) {
+            int capacity = Math.max(id + 1, sizes.length * 2);
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ограниченная min-куча для выбора k лучших id по очку. Пара (очко, id) упакована в один long так,
+ * что больший long — лучше: выше очко, а при равенстве меньше id.
+ */
+final class TopK {
+    private final long[] heap;
+    private int size;
+
+    TopK(int k) {
+        heap = new long[Math.max(0, k)];
+    }
+
+    void offer(int id, int score) {
+        if (heap.length == 0) {
+            return;
+        }
+        long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    List<ScoredId> result() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        List<ScoredId> result = new ArrayList<>(size);
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            result.add(new ScoredId(Integer.MAX_VALUE - (int) sorted[i], (int) (sorted[i] >>> 32)));
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private void siftDown(int index) {
+        long key = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
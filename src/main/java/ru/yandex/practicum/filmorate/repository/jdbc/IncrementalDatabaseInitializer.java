@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Инициализация базы для профиля {@code prod} вместо {@code spring.sql.init}.
+ * Схема применяется, только если изменилась контрольная сумма {@code schema.sql}: она хранится
+ * в таблице {@code schema_version}. Начальные данные вставляются лишь в пустые таблицы, поэтому
+ * повторный запуск на существующей файловой базе не падает на дублях и не тратит время на DDL.
+ * Команды скрипта данных, не являющиеся {@code INSERT}, выполняются, только если до них
+ * в этом запуске что-то было вставлено.
+ * Класс наследует инициализатор Spring Boot, чтобы {@link JdbcTemplate} и зависящие от него
+ * компоненты создавались только после него.
+ */
+@Component
+@Profile("prod")
+public class IncrementalDatabaseInitializer extends DataSourceScriptDatabaseInitializer {
+    private static final Logger log = LoggerFactory.getLogger(IncrementalDatabaseInitializer.class);
+    private static final Pattern INSERT = Pattern.compile("^INSERT\\s+INTO\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+    private final Resource schema;
+    private final Resource data;
+
+    public IncrementalDatabaseInitializer(DataSource dataSource, ResourceLoader resourceLoader,
+                                          @Value("${filmorate.db.schema:classpath:schema.sql}") String schema,
+                                          @Value("${filmorate.db.data:classpath:data.sql}") String data) {
+        super(dataSource, settings(schema, data));
+        this.dataSource = dataSource;
+        this.schema = resourceLoader.getResource(schema);
+        this.data = resourceLoader.getResource(data);
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        long started = System.nanoTime();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        boolean schemaApplied = applySchema(jdbcTemplate);
+        int seeded = new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .execute(status -> seedEmptyTables(jdbcTemplate));
+        log.info("Инициализация базы за {} мс: схема {}, вставок начальных данных {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                schemaApplied ? "применена" : "не изменилась", seeded);
+        return schemaApplied || seeded > 0;
+    }
+
+    private boolean applySchema(JdbcTemplate jdbcTemplate) {
+        String checksum = checksum(read(schema));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                + "script VARCHAR(255) PRIMARY KEY, "
+                + "checksum VARCHAR(64) NOT NULL, "
+                + "applied_at TIMESTAMP NOT NULL)");
+        List<String> applied = jdbcTemplate.queryForList(
+                "SELECT checksum FROM schema_version WHERE script = ?", String.class, schema.getFilename());
+        if (applied.contains(checksum)) {
+            return false;
+        }
+        new ResourceDatabasePopulator(schema).execute(dataSource);
+        jdbcTemplate.update("MERGE INTO schema_version (script, checksum, applied_at) KEY (script) "
+                + "VALUES (?, ?, CURRENT_TIMESTAMP)", schema.getFilename(), checksum);
+        log.info("Применена схема {} с контрольной суммой {}", schema.getFilename(), checksum);
+        return true;
+    }
+
+    private int seedEmptyTables(JdbcTemplate jdbcTemplate) {
+        Map<String, Boolean> emptyTables = new HashMap<>();
+        int seeded = 0;
+        for (String statement : statements(read(data))) {
+            Matcher matcher = INSERT.matcher(statement);
+            if (!matcher.find()) {
+                // Прочие команды (например, пересчёт films.likes) дополняют только что вставленные
+                // данные и на уже заполненной базе не нужны.
+                if (seeded > 0) {
+                    jdbcTemplate.execute(statement);
+                } else {
+                    log.debug("Пропущена команда начальных данных: таблицы уже заполнены: {}", statement);
+                }
+                continue;
+            }
+            String table = matcher.group(1).toLowerCase(Locale.ROOT);
+            boolean empty = emptyTables.computeIfAbsent(table, name -> !Boolean.TRUE.equals(
+                    jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class)));
+            if (empty) {
+                jdbcTemplate.update(statement);
+                seeded++;
+            }
+        }
+        return seeded;
+    }
+
+    /**
+     * Делит скрипт на команды по {@code ;} вне строковых литералов, отбрасывая комментарии {@code --}.
+     */
+    private static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (!quoted && c == '-' && i + 1 < script.length() && script.charAt(i + 1) == '-') {
+                while (i < script.length() && script.charAt(i) != '\n') {
+                    i++;
+                }
+                current.append('\n');
+                continue;
+            }
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (!quoted && c == ';') {
+                addStatement(statements, current);
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder statement) {
+        String trimmed = statement.toString().trim();
+        if (!trimmed.isEmpty()) {
+            statements.add(trimmed);
+        }
+    }
+
+    private static String read(Resource resource) {
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + resource.getDescription(), e);
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DatabaseInitializationSettings settings(String schema, String data) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of(schema));
+        settings.setDataLocations(List.of(data));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+        return settings;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Оборачивает источник данных приложения в {@link ConcurrencyLimitedDataSource}.
+ * В режиме виртуальных потоков ({@code spring.threads.virtual.enabled=true}) запросов становится
+ * столько, сколько пришло, и без ограничителя все они выстраивались бы в очередь пула соединений.
+ * Драйвер H2 синхронизируется через {@code synchronized}, поэтому ограничитель заодно держит
+ * число закреплённых за несущими потоками виртуальных потоков не выше max-concurrency.
+ */
+@Component
+public class JdbcConcurrencyLimiter implements BeanPostProcessor {
+    private static final Logger log = LoggerFactory.getLogger(JdbcConcurrencyLimiter.class);
+
+    private final boolean enabled;
+    private final int maxConcurrency;
+    private final Duration acquireTimeout;
+    private final boolean virtualThreads;
+
+    public JdbcConcurrencyLimiter(@Value("${filmorate.jdbc.limiter.enabled:true}") boolean enabled,
+                                  @Value("${filmorate.jdbc.max-concurrency:10}") int maxConcurrency,
+                                  @Value("${filmorate.jdbc.acquire-timeout:PT5S}") Duration acquireTimeout,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.enabled = enabled;
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeout = acquireTimeout;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+            return bean;
+        }
+        log.info("Источник данных {} ограничен {} одновременными соединениями, ожидание до {}, виртуальные потоки: {}",
+                beanName, maxConcurrency, acquireTimeout, virtualThreads);
+        return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает источник данных приложения в {@link StatementCountingDataSource}, чтобы
+ * считать SQL-запросы и время в базе на каждый HTTP-запрос.
+ */
+@Component
+public class JdbcStatementCounter implements BeanPostProcessor {
+    private static final Logger log = LoggerFactory.getLogger(JdbcStatementCounter.class);
+
+    private final boolean enabled;
+
+    public JdbcStatementCounter(@Value("${filmorate.sql.stats.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof StatementCountingDataSource) {
+            return bean;
+        }
+        log.info("Для источника данных {} включён подсчёт SQL-запросов", beanName);
+        return new StatementCountingDataSource(dataSource);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Счётчик SQL-запросов и времени в базе для текущего потока. Считаются только выполнения
+ * внутри открытой области {@link #open()}: её открывает фильтр на время HTTP-запроса, а тесты —
+ * вокруг проверяемого вызова. Вне области {@link StatementCountingDataSource} ничего не считает.
+ * <pre>{@code
+ * try (SqlStatementStats.Scope scope = SqlStatementStats.open()) {
+ *     filmService.getPopularFilm(10);
+ *     assertThat(scope.snapshot().statements()).isLessThanOrEqualTo(2);
+ * }
+ * }</pre>
+ * Вложенная область при закрытии добавляет свои запросы во внешнюю.
+ */
+public final class SqlStatementStats {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    public record Snapshot(int statements, long nanos) {
+        public long millis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope outer;
+        private int statements;
+        private long nanos;
+        private boolean closed;
+
+        private Scope(Scope outer) {
+            this.outer = outer;
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(statements, nanos);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (outer != null) {
+                outer.statements += statements;
+                outer.nanos += nanos;
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private SqlStatementStats() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Запросы текущей области или {@code null}, если область не открыта.
+     */
+    public static Snapshot current() {
+        Scope scope = CURRENT.get();
+        return scope == null ? null : scope.snapshot();
+    }
+
+    static Scope active() {
+        return CURRENT.get();
+    }
+
+    static void record(Scope scope, long nanos) {
+        scope.statements++;
+        scope.nanos += nanos;
+    }
+}
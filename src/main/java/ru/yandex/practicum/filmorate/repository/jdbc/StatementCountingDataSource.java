@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Источник данных, который засчитывает каждое выполнение ({@code execute*}) команды в
+ * {@link SqlStatementStats} текущего потока вместе с его временем. Пакет из {@code executeBatch}
+ * считается одним запросом: это одно обращение к базе. Время чтения {@code ResultSet} после
+ * выполнения не учитывается. Без открытой области вызовы проходят к команде напрямую.
+ * Закрытие передаётся пулу, чтобы обёртка не мешала контексту закрыть его при остановке.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static Connection counting(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement
+                            && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return counting(method.getReturnType(), statement);
+                    }
+                    return result;
+            }
+        });
+    }
+
+    private static Statement counting(Class<?> type, Statement statement) {
+        return proxy(type, (proxy, method, args) -> method.getName().startsWith("execute")
+                ? timed(statement, method, args)
+                : invoke(statement, method, args));
+    }
+
+    private static Object timed(Statement statement, Method method, Object[] args) throws Throwable {
+        SqlStatementStats.Scope scope = SqlStatementStats.active();
+        if (scope == null) {
+            return invoke(statement, method, args);
+        }
+        long started = System.nanoTime();
+        try {
+            return invoke(statement, method, args);
+        } finally {
+            SqlStatementStats.record(scope, System.nanoTime() - started);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
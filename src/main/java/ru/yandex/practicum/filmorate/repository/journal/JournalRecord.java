@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.repository.journal;
+
+import java.time.LocalDate;
+
+/**
+ * Изменение хранилища в памяти в том виде, в каком оно пишется в журнал и снимок.
+ * Каждая запись несёт итоговое состояние, а не приращение, поэтому повторное применение
+ * безопасно: при восстановлении хвост журнала накладывается на нечёткий снимок.
+ */
+public sealed interface JournalRecord {
+    record UserSaved(int id, String email, String login, String name, LocalDate birthday) implements JournalRecord {
+    }
+
+    record UserDeleted(int id) implements JournalRecord {
+    }
+
+    /**
+     * Следующий id пользователя: без него после удаления последнего пользователя его id выдался бы снова.
+     */
+    record UserSequence(int nextId) implements JournalRecord {
+    }
+
+    record FriendAdded(int userId, int friendId) implements JournalRecord {
+    }
+
+    record FriendRemoved(int userId, int friendId) implements JournalRecord {
+    }
+
+    record FilmSaved(int id, String name, String description, LocalDate releaseDate, int duration, int ratingId,
+                     int[] genreIds) implements JournalRecord {
+    }
+
+    record LikeAdded(int filmId, int userId) implements JournalRecord {
+    }
+
+    record LikeRemoved(int filmId, int userId) implements JournalRecord {
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.repository.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Чтение и запись кадров {@link RecordCodec} через отображённые в память окна файла.
+ * Окно по умолчанию 64 МБ; кадр, не поместившийся в остаток окна, начинает следующее окно.
+ */
+final class MappedFrames {
+    private static final long WINDOW = 64L << 20;
+
+    private MappedFrames() {
+    }
+
+    static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long position;
+        private boolean torn;
+        private boolean ended;
+
+        Reader(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.position = start;
+        }
+
+        /**
+         * Тело следующего кадра или {@code null}, если файл кончился, встретилась отметка конца
+         * ({@link #isEnded()}) или кадр повреждён ({@link #isTorn()}).
+         */
+        ByteBuffer next() throws IOException {
+            long remaining = size - position;
+            if (remaining == 0) {
+                return null;
+            }
+            if (remaining < RecordCodec.FRAME_HEADER) {
+                torn = true;
+                return null;
+            }
+            int offset = map(RecordCodec.FRAME_HEADER);
+            int length = window.getInt(offset);
+            int checksum = window.getInt(offset + 4);
+            if (length == 0) {
+                ended = true;
+                return null;
+            }
+            if (length < Long.BYTES + 1 || length > remaining - RecordCodec.FRAME_HEADER) {
+                torn = true;
+                return null;
+            }
+            offset = map(RecordCodec.FRAME_HEADER + length);
+            ByteBuffer body = window.slice(offset + RecordCodec.FRAME_HEADER, length);
+            if (!RecordCodec.checksumMatches(body, checksum)) {
+                torn = true;
+                return null;
+            }
+            position += RecordCodec.FRAME_HEADER + length;
+            return body;
+        }
+
+        boolean isTorn() {
+            return torn;
+        }
+
+        boolean isEnded() {
+            return ended;
+        }
+
+        /**
+         * Смещение сразу за последним целым кадром.
+         */
+        long position() {
+            return position;
+        }
+
+        private int map(int length) throws IOException {
+            if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Math.max(WINDOW, length), size - position));
+            }
+            return (int) (position - windowStart);
+        }
+    }
+
+    static final class Writer {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Writer(FileChannel channel, long start) {
+            this.channel = channel;
+            this.windowStart = start;
+        }
+
+        void put(ByteBuffer frame) throws IOException {
+            ensure(frame.remaining());
+            window.put(frame);
+        }
+
+        void putHeader(int magic, int version, long seq) throws IOException {
+            ensure(Integer.BYTES * 2 + Long.BYTES);
+            window.putInt(magic).putInt(version).putLong(seq);
+        }
+
+        /**
+         * Дописывает отметку конца, сбрасывает окна на диск и обрезает файл по записанному.
+         */
+        void finish() throws IOException {
+            ensure(RecordCodec.FRAME_HEADER);
+            window.putLong(0);
+            long end = windowStart + window.position();
+            window.force();
+            channel.truncate(end);
+            channel.force(true);
+        }
+
+        private void ensure(int length) throws IOException {
+            if (window != null && window.remaining() >= length) {
+                return;
+            }
+            if (window != null) {
+                window.force();
+                windowStart += window.position();
+            }
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW, length));
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package ru.yandex.practicum.filmorate.repository.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Журнал изменений хранилища в памяти с периодическими снимками.
+ * Изменение применяется к памяти и получает номер под одним замком, поэтому порядок в журнале
+ * совпадает с порядком применения. Запись на диск идёт группами: первый ждущий поток становится
+ * лидером, пишет всё накопленное одним вызовом и будит остальных. Политика fsync: ALWAYS — ответ
+ * после fsync группы, INTERVAL — после записи в файл с fsync раз в fsync-interval, NEVER — на
+ * усмотрение ОС. Снимок пишется через отображённые в память окна без остановки записи: журнал
+ * переключается на новый сегмент, а при восстановлении хвост накладывается на снимок повторно.
+ */
+@Component
+@Profile("in-memory")
+public class MutationJournal {
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final Logger log = LoggerFactory.getLogger(MutationJournal.class);
+    private static final int SNAPSHOT_MAGIC = 0x464D534E;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = Integer.BYTES * 2 + Long.BYTES;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final Consumer<JournalRecord> NO_JOURNAL = record -> {
+    };
+
+    private final boolean enabled;
+    private final Path directory;
+    private final FsyncPolicy fsync;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final RecordCodec codec = new RecordCodec();
+    private FrameBuffer pending = new FrameBuffer();
+    private FrameBuffer spare = new FrameBuffer();
+    private long lastSeq;
+    private long writtenSeq;
+    private long snapshotSeq;
+    private boolean flushing;
+    private boolean dirty;
+    private IOException failure;
+    private FileChannel segment;
+    private Consumer<Consumer<JournalRecord>> snapshotSource;
+    private ScheduledExecutorService scheduler;
+
+    public MutationJournal(@Value("${filmorate.journal.enabled:false}") boolean enabled,
+                           @Value("${filmorate.journal.directory:./data/journal}") Path directory,
+                           @Value("${filmorate.journal.fsync:ALWAYS}") FsyncPolicy fsync,
+                           @Value("${filmorate.journal.fsync-interval:PT1S}") Duration fsyncInterval,
+                           @Value("${filmorate.journal.snapshot-interval:PT10M}") Duration snapshotInterval) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Загружает последний снимок, применяет хвост журнала и открывает журнал на запись.
+     * {@code snapshotSource} выдаёт текущее состояние хранилищ в виде записей для будущих снимков.
+     */
+    public void recover(Consumer<JournalRecord> replay, Consumer<Consumer<JournalRecord>> snapshotSource) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            for (Path leftover : list("", ".tmp")) {
+                Files.delete(leftover);
+            }
+            List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long restored = 0;
+            if (!snapshots.isEmpty()) {
+                restored = readSnapshot(snapshots.get(snapshots.size() - 1), replay);
+            }
+            lastSeq = snapshotSeq;
+            List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            long replayed = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                replayed += replaySegment(segments.get(i), replay, i == segments.size() - 1);
+            }
+            writtenSeq = lastSeq;
+            Path current = segments.isEmpty() ? directory.resolve(segmentName(lastSeq + 1)) : segments.get(segments.size() - 1);
+            segment = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            log.info("Хранилище восстановлено за {} мс: из снимка {} записей, из журнала {}, последняя запись {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), restored, replayed, lastSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить хранилище из журнала", e);
+        }
+        this.snapshotSource = snapshotSource;
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "mutation-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncQuietly, fsyncInterval.toMillis(), fsyncInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Применяет изменение и возвращает управление, когда его записи сохранены согласно политике fsync.
+     * {@code mutation} выполняется под замком журнала и передаёт в полученный приёмник записи
+     * о том, что изменилось; если изменение ничего не записало, ожидания нет.
+     */
+    public <T> T write(Function<Consumer<JournalRecord>, T> mutation) {
+        if (!enabled) {
+            return mutation.apply(NO_JOURNAL);
+        }
+        T result;
+        long before;
+        long after;
+        lock.lock();
+        try {
+            checkFailure();
+            before = lastSeq;
+            result = mutation.apply(this::append);
+            after = lastSeq;
+        } finally {
+            lock.unlock();
+        }
+        if (after != before) {
+            awaitWritten(after);
+        }
+        return result;
+    }
+
+    /**
+     * Снимок состояния на текущую запись журнала. Предыдущие снимки и покрытые сегменты удаляются.
+     */
+    public void snapshot() {
+        if (!enabled || snapshotSource == null) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            long seq = rollSegment();
+            if (seq < 0) {
+                return;
+            }
+            long started = System.nanoTime();
+            String name = snapshotName(seq);
+            Path tmp = directory.resolve(name + ".tmp");
+            long[] count = {0};
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedFrames.Writer writer = new MappedFrames.Writer(channel, 0);
+                RecordCodec snapshotCodec = new RecordCodec();
+                writer.putHeader(SNAPSHOT_MAGIC, SNAPSHOT_VERSION, seq);
+                snapshotSource.accept(record -> {
+                    try {
+                        writer.put(snapshotCodec.encode(seq, record));
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.finish();
+            }
+            Path target = Files.move(tmp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            String currentSegment = segmentName(seq + 1);
+            for (Path old : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (old.getFileName().toString().compareTo(currentSegment) < 0) {
+                    Files.delete(old);
+                }
+            }
+            for (Path old : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (!old.equals(target)) {
+                    Files.delete(old);
+                }
+            }
+            snapshotSeq = seq;
+            log.info("Записан снимок {}: {} записей за {} мс", target.getFileName(), count[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок хранилища", e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает накопленное и, если политика не NEVER, делает fsync.
+     */
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (flushing) {
+                written.awaitUninterruptibly();
+            }
+            boolean force = fsync != FsyncPolicy.NEVER;
+            if (failure != null || segment == null || (pending.size() == 0 && !(force && dirty))) {
+                return;
+            }
+            flushLocked(force);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+        lock.lock();
+        try {
+            segment.force(true);
+            segment.close();
+            log.info("Журнал изменений закрыт на записи {}", lastSeq);
+        } catch (IOException e) {
+            log.error("Не удалось закрыть журнал изменений", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(JournalRecord record) {
+        ByteBuffer frame = codec.encode(++lastSeq, record);
+        pending.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    private void awaitWritten(long seq) {
+        lock.lock();
+        try {
+            while (writtenSeq < seq) {
+                checkFailure();
+                if (flushing) {
+                    written.awaitUninterruptibly();
+                } else {
+                    flushLocked(fsync == FsyncPolicy.ALWAYS);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Шаг лидера группы: забирает накопленные кадры и пишет их, отпустив замок на время ввода-вывода.
+     */
+    private void flushLocked(boolean force) {
+        flushing = true;
+        FrameBuffer batch = pending;
+        pending = spare;
+        long target = lastSeq;
+        FileChannel channel = segment;
+        IOException error = null;
+        lock.unlock();
+        try {
+            ByteBuffer bytes = batch.asByteBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+            batch.reset();
+            spare = batch;
+            flushing = false;
+            if (error == null) {
+                writtenSeq = target;
+                dirty = !force;
+            } else {
+                failure = error;
+                log.error("Журнал изменений остановлен: ошибка записи", error);
+            }
+            written.signalAll();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Переключает журнал на новый сегмент и возвращает номер, по который включительно записи
+     * остались в старых сегментах, или -1, если после прошлого снимка ничего не записано.
+     */
+    private long rollSegment() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                written.awaitUninterruptibly();
+            }
+            checkFailure();
+            if (writtenSeq == snapshotSeq) {
+                return -1;
+            }
+            long seq = writtenSeq;
+            try {
+                segment.force(true);
+                segment.close();
+                segment = FileChannel.open(directory.resolve(segmentName(seq + 1)), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            dirty = false;
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long readSnapshot(Path path, Consumer<JournalRecord> replay) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+            int read;
+            do {
+                read = channel.read(header);
+            } while (read >= 0 && header.hasRemaining());
+            header.flip();
+            if (header.remaining() < SNAPSHOT_HEADER || header.getInt() != SNAPSHOT_MAGIC
+                    || header.getInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Файл не является снимком хранилища: " + path);
+            }
+            snapshotSeq = header.getLong();
+            MappedFrames.Reader reader = new MappedFrames.Reader(channel, SNAPSHOT_HEADER);
+            long count = 0;
+            ByteBuffer body;
+            while ((body = reader.next()) != null) {
+                replay.accept(RecordCodec.decode(body));
+                count++;
+            }
+            if (!reader.isEnded()) {
+                throw new IllegalStateException("Снимок хранилища повреждён: " + path);
+            }
+            return count;
+        }
+    }
+
+    private long replaySegment(Path path, Consumer<JournalRecord> replay, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedFrames.Reader reader = new MappedFrames.Reader(channel, 0);
+            long count = 0;
+            ByteBuffer body;
+            while ((body = reader.next()) != null) {
+                long seq = RecordCodec.seq(body);
+                if (seq > snapshotSeq) {
+                    replay.accept(RecordCodec.decode(body));
+                    count++;
+                }
+                lastSeq = Math.max(lastSeq, seq);
+            }
+            if (reader.isTorn() || reader.isEnded()) {
+                if (!last) {
+                    throw new IllegalStateException("Сегмент журнала повреждён: " + path);
+                }
+                log.warn("Хвост журнала {} повреждён и обрезан по смещению {}", path.getFileName(), reader.position());
+                channel.truncate(reader.position());
+                channel.force(true);
+            }
+            return count;
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен после ошибки записи", failure);
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.error("Ошибка синхронизации журнала изменений", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи снимка хранилища", e);
+        }
+    }
+
+    private static String segmentName(long firstSeq) {
+        return "%s%020d%s".formatted(SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX);
+    }
+
+    private static String snapshotName(long seq) {
+        return "%s%020d%s".formatted(SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX);
+    }
+
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+        private FrameBuffer() {
+            super(64 * 1024);
+        }
+
+        private ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.repository.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат записей, общий для журнала и снимков.
+ * Кадр: длина тела (int), CRC32C тела (int), тело — номер записи (long), тип (byte) и поля.
+ * Кадр с нулевой длиной отмечает конец снимка. Экземпляр не потокобезопасен.
+ */
+final class RecordCodec {
+    static final int FRAME_HEADER = 8;
+
+    private static final byte USER_SAVED = 1;
+    private static final byte USER_DELETED = 2;
+    private static final byte FRIEND_ADDED = 3;
+    private static final byte FRIEND_REMOVED = 4;
+    private static final byte FILM_SAVED = 5;
+    private static final byte LIKE_ADDED = 6;
+    private static final byte LIKE_REMOVED = 7;
+    private static final byte USER_SEQUENCE = 8;
+
+    private final Scratch scratch = new Scratch();
+    private final DataOutputStream out = new DataOutputStream(scratch);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Кадр записи. Буфер переиспользуется и действителен до следующего вызова.
+     */
+    ByteBuffer encode(long seq, JournalRecord record) {
+        scratch.reset();
+        try {
+            out.writeLong(0);
+            out.writeLong(seq);
+            switch (record) {
+                case JournalRecord.UserSaved user -> {
+                    out.writeByte(USER_SAVED);
+                    out.writeInt(user.id());
+                    writeString(user.email());
+                    writeString(user.login());
+                    writeString(user.name());
+                    writeDate(user.birthday());
+                }
+                case JournalRecord.UserDeleted user -> {
+                    out.writeByte(USER_DELETED);
+                    out.writeInt(user.id());
+                }
+                case JournalRecord.UserSequence sequence -> {
+                    out.writeByte(USER_SEQUENCE);
+                    out.writeInt(sequence.nextId());
+                }
+                case JournalRecord.FriendAdded link -> writePair(FRIEND_ADDED, link.userId(), link.friendId());
+                case JournalRecord.FriendRemoved link -> writePair(FRIEND_REMOVED, link.userId(), link.friendId());
+                case JournalRecord.FilmSaved film -> {
+                    out.writeByte(FILM_SAVED);
+                    out.writeInt(film.id());
+                    writeString(film.name());
+                    writeString(film.description());
+                    writeDate(film.releaseDate());
+                    out.writeInt(film.duration());
+                    out.writeInt(film.ratingId());
+                    out.writeInt(film.genreIds().length);
+                    for (int genreId : film.genreIds()) {
+                        out.writeInt(genreId);
+                    }
+                }
+                case JournalRecord.LikeAdded like -> writePair(LIKE_ADDED, like.filmId(), like.userId());
+                case JournalRecord.LikeRemoved like -> writePair(LIKE_REMOVED, like.filmId(), like.userId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer frame = ByteBuffer.wrap(scratch.buffer(), 0, scratch.size());
+        int length = scratch.size() - FRAME_HEADER;
+        crc.reset();
+        crc.update(scratch.buffer(), FRAME_HEADER, length);
+        frame.putInt(0, length);
+        frame.putInt(4, (int) crc.getValue());
+        return frame;
+    }
+
+    static boolean checksumMatches(ByteBuffer body, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return (int) crc.getValue() == expected;
+    }
+
+    static long seq(ByteBuffer body) {
+        return body.getLong(body.position());
+    }
+
+    static JournalRecord decode(ByteBuffer body) {
+        ByteBuffer in = body.duplicate();
+        in.getLong();
+        byte type = in.get();
+        return switch (type) {
+            case USER_SAVED -> new JournalRecord.UserSaved(in.getInt(), readString(in), readString(in),
+                    readString(in), readDate(in));
+            case USER_DELETED -> new JournalRecord.UserDeleted(in.getInt());
+            case USER_SEQUENCE -> new JournalRecord.UserSequence(in.getInt());
+            case FRIEND_ADDED -> new JournalRecord.FriendAdded(in.getInt(), in.getInt());
+            case FRIEND_REMOVED -> new JournalRecord.FriendRemoved(in.getInt(), in.getInt());
+            case FILM_SAVED -> {
+                int id = in.getInt();
+                String name = readString(in);
+                String description = readString(in);
+                LocalDate releaseDate = readDate(in);
+                int duration = in.getInt();
+                int ratingId = in.getInt();
+                int[] genreIds = new int[in.getInt()];
+                for (int i = 0; i < genreIds.length; i++) {
+                    genreIds[i] = in.getInt();
+                }
+                yield new JournalRecord.FilmSaved(id, name, description, releaseDate, duration, ratingId, genreIds);
+            }
+            case LIKE_ADDED -> new JournalRecord.LikeAdded(in.getInt(), in.getInt());
+            case LIKE_REMOVED -> new JournalRecord.LikeRemoved(in.getInt(), in.getInt());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        };
+    }
+
+    private void writePair(byte type, int first, int second) throws IOException {
+        out.writeByte(type);
+        out.writeInt(first);
+        out.writeInt(second);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeDate(LocalDate value) throws IOException {
+        out.writeLong(value == null ? Long.MIN_VALUE : value.toEpochDay());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static final class Scratch extends ByteArrayOutputStream {
+        private Scratch() {
+            super(256);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
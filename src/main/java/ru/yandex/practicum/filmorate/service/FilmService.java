@@ -1,31 +1,87 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRank;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final Validator validator;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmCache filmCache;
 
     @Autowired
     public FilmService(
-            @Qualifier("filmDbStorage") FilmStorage filmStorage,
-            @Qualifier("userDbStorage") UserStorage userStorage) {
+            FilmStorage filmStorage,
+            UserStorage userStorage,
+            @Value("${filmorate.pagination.default-limit:100}") int defaultPageSize,
+            @Value("${filmorate.pagination.max-limit:1000}") int maxPageSize,
+            Validator validator,
+            LikeWriteBuffer likeWriteBuffer,
+            FilmCache filmCache,
+            FilmPopularityIndex popularityIndex) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.validator = validator;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.filmCache = filmCache;
+        this.popularityIndex = popularityIndex;
     }
 
     public Film create(Film film) {
         return filmStorage.create(film);
     }
 
+    public List<BatchItemResult> createAll(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Film> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film item = films.get(i);
+            String error = item == null ? "Пустой элемент пакета" : validationErrors(item);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(i, error);
+            } else {
+                valid.add(item);
+                validIndexes.add(i);
+            }
+        }
+        List<BatchItemResult> stored = filmStorage.createAll(valid);
+        for (int j = 0; j < stored.size(); j++) {
+            BatchItemResult result = stored.get(j);
+            result.setIndex(validIndexes.get(j));
+            results[result.getIndex()] = result;
+        }
+        return Arrays.asList(results);
+    }
+
     public Film findById(int id) {
         return filmStorage.findById(id);
     }
@@ -34,23 +90,91 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
+    public CursorPage<Film> getPage(int afterId, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+        List<Film> rows = filmStorage.getPage(afterId, pageSize + 1);
+        return CursorPage.of(rows, pageSize, Film::getId);
+    }
+
     public Film update(Film film) {
         return filmStorage.update(film);
     }
 
     public Film addLikeFilm(int filmId, int userId) {
-        filmStorage.findById(filmId);
-        userStorage.findById(userId);
+        requireFilm(filmId);
+        requireUser(userId);
+        if (likeWriteBuffer.isEnabled()) {
+            // Счётчик — записанный в хранилище плюс этот лайк; другие изменения из очереди в него не входят.
+            Film film = filmStorage.findById(filmId);
+            if (likeWriteBuffer.submit(filmId, userId, true)) {
+                film.setLikes(film.getLikes() + 1);
+            }
+            return film;
+        }
         return filmStorage.addLikeFilm(filmId, userId);
     }
 
     public void deleteLikeFilm(int id, int userId) {
-        filmStorage.findById(id);
-        userStorage.findById(userId);
+        requireFilm(id);
+        requireUser(userId);
+        if (likeWriteBuffer.isEnabled()) {
+            if (!likeWriteBuffer.submit(id, userId, false)) {
+                throw new IncorrectParameterException("Лайк не найден");
+            }
+            return;
+        }
         filmStorage.deleteLikeFilm(id, userId);
     }
 
     public List<Film> getPopularFilm(int count) {
         return filmStorage.getPopularFilm(count);
     }
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        requireUser(userId);
+        return filmStorage.getRecommendations(userId, Math.min(limit, maxPageSize));
+    }
+
+    public FilmRank getRank(int filmId) {
+        int rank = popularityIndex.rank(filmId);
+        if (rank == 0) {
+            throw new ObjectNotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+        return new FilmRank(filmId, rank, popularityIndex.likes(filmId));
+    }
+
+    public BoundedCache.Stats getCacheStats() {
+        return filmCache.stats();
+    }
+
+    public int reconcileLikes() {
+        return filmStorage.reconcileLikes();
+    }
+
+    private void requireFilm(int filmId) {
+        if (!filmStorage.existsById(filmId)) {
+            throw new ObjectNotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+    }
+
+    private void requireUser(int userId) {
+        if (!userStorage.existsById(userId)) {
+            throw new ObjectNotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private String validationErrors(Film item) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
 }
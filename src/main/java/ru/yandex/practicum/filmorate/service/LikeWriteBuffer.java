@@ -0,0 +1,231 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Буфер отложенной записи лайков.
+ * Изменения складываются в ограниченную очередь, где последняя операция для пары (фильм, пользователь)
+ * заменяет предыдущую, и записываются в film_like пакетами — по заполнению пакета или по таймеру.
+ * Если очередь заполнена, запрос ждёт освобождения места не дольше offer-timeout, после чего получает отказ.
+ * Изменение, которое ничего не меняет, в очередь не попадает: текущее состояние пары берётся из очереди,
+ * из записываемого пакета, а если там её нет — из хранилища. Изменение, которое не удалось записать
+ * даже по одному, отбрасывается с предупреждением в логе: клиент к этому моменту уже получил ответ.
+ */
+@Component
+public class LikeWriteBuffer {
+    private static final Logger log = LoggerFactory.getLogger(LikeWriteBuffer.class);
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private Map<Long, LikeChange> pending = new LinkedHashMap<>();
+    private Map<Long, LikeChange> inFlight = Map.of();
+    private volatile long flushes;
+    private ScheduledExecutorService flusher;
+    private volatile boolean stopped;
+
+    @Autowired
+    public LikeWriteBuffer(FilmStorage filmStorage,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.flush-interval:PT1S}") Duration flushInterval,
+                           @Value("${filmorate.likes.write-behind.offer-timeout:PT2S}") Duration offerTimeout) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Включена отложенная запись лайков: очередь {}, пакет {}, интервал {}",
+                capacity, batchSize, flushInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        stopped = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Буфер лайков сброшен при остановке");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ставит изменение в очередь; возвращает {@code false}, если лайк уже стоит или его и так нет.
+     * Хранилище читается до захвата замка, а под замком — повторно, только если за это время
+     * завершилась запись пакета.
+     */
+    public boolean submit(int filmId, int userId, boolean liked) {
+        long key = ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+        long seenFlushes = flushes;
+        boolean stored = filmStorage.isLiked(filmId, userId);
+        int size;
+        lock.lock();
+        try {
+            long nanos = offerTimeout.toNanos();
+            while (pending.size() >= capacity && !pending.containsKey(key)) {
+                if (nanos <= 0) {
+                    throw new ServiceOverloadedException("Очередь лайков переполнена, повторите запрос позже");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            LikeChange queued = pending.containsKey(key) ? pending.get(key) : inFlight.get(key);
+            boolean current;
+            if (queued != null) {
+                current = queued.isLiked();
+            } else if (flushes == seenFlushes) {
+                current = stored;
+            } else {
+                current = filmStorage.isLiked(filmId, userId);
+            }
+            if (current == liked) {
+                return false;
+            }
+            pending.put(key, new LikeChange(filmId, userId, liked));
+            size = pending.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Запись лайка прервана");
+        } finally {
+            lock.unlock();
+        }
+        if (stopped) {
+            // Фоновая запись уже остановлена и последний сброс мог пройти: пишем сразу.
+            flush();
+        } else if (size >= batchSize && flusher != null && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+        return true;
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения и возвращает их количество.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<LikeChange> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = new ArrayList<>(pending.values());
+                inFlight = pending;
+                pending = new LinkedHashMap<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                for (int from = 0; from < batch.size(); from += batchSize) {
+                    write(batch.subList(from, Math.min(from + batchSize, batch.size())));
+                }
+            } finally {
+                lock.lock();
+                try {
+                    inFlight = Map.of();
+                    flushes++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<LikeChange> changes) {
+        try {
+            filmStorage.applyLikeChanges(changes);
+        } catch (DataAccessException e) {
+            log.warn("Пакет лайков не записан, повтор по одному: {}", e.getMessage());
+            for (LikeChange change : changes) {
+                try {
+                    filmStorage.applyLikeChanges(List.of(change));
+                } catch (DataAccessException ex) {
+                    log.warn("Изменение лайка отброшено: {}, причина: {}", change, ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка отложенной записи лайков", e);
+        }
+    }
+}
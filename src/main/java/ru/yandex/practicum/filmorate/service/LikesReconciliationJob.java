@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LikesReconciliationJob {
+    private static final Logger log = LoggerFactory.getLogger(LikesReconciliationJob.class);
+    private final FilmService filmService;
+
+    @Autowired
+    public LikesReconciliationJob(FilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-initial-delay:PT1M}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval:PT10M}")
+    public void reconcile() {
+        int fixed = filmService.reconcileLikes();
+        log.debug("Сверка счётчиков лайков завершена, исправлено фильмов: {}", fixed);
+    }
+}
@@ -1,27 +1,60 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.repository.cache.UserCache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
     private final UserStorage userStorage;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final Validator validator;
+    private final UserCache userCache;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(UserStorage userStorage,
+                       @Value("${filmorate.pagination.default-limit:100}") int defaultPageSize,
+                       @Value("${filmorate.pagination.max-limit:1000}") int maxPageSize,
+                       Validator validator,
+                       UserCache userCache) {
         this.userStorage = userStorage;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.validator = validator;
+        this.userCache = userCache;
     }
 
     public List<User> getAll() {
         return userStorage.getAll();
     }
 
+    public void streamAll(Consumer<User> consumer) {
+        userStorage.streamAll(consumer);
+    }
+
+    public CursorPage<User> getPage(int afterId, Integer limit) {
+        int pageSize = pageSize(limit);
+        return CursorPage.of(userStorage.getPage(afterId, pageSize + 1), pageSize, User::getId);
+    }
+
     public User findById(int id) {
         return userStorage.findById(id);
     }
@@ -30,6 +63,29 @@ public class UserService {
         return userStorage.create(user);
     }
 
+    public List<BatchItemResult> createAll(List<User> users) {
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        List<User> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User item = users.get(i);
+            String error = item == null ? "Пустой элемент пакета" : validationErrors(item);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(i, error);
+            } else {
+                valid.add(item);
+                validIndexes.add(i);
+            }
+        }
+        List<BatchItemResult> stored = userStorage.createAll(valid);
+        for (int j = 0; j < stored.size(); j++) {
+            BatchItemResult result = stored.get(j);
+            result.setIndex(validIndexes.get(j));
+            results[result.getIndex()] = result;
+        }
+        return Arrays.asList(results);
+    }
+
     public User update(User user) {
         return userStorage.update(user);
     }
@@ -46,11 +102,43 @@ public class UserService {
         return userStorage.getFriendsThisUser(userId);
     }
 
+    public CursorPage<User> getFriendsPage(int userId, int afterId, Integer limit) {
+        int pageSize = pageSize(limit);
+        return CursorPage.of(userStorage.getFriendsPage(userId, afterId, pageSize + 1), pageSize, User::getId);
+    }
+
+    public int getFriendsCount(int userId) {
+        return userStorage.getFriendsCount(userId);
+    }
+
     public void deleteFriends(int userId, int friendId) {
         userStorage.deleteFriends(userId, friendId);
     }
 
+    public List<FriendSuggestion> getFriendSuggestions(int userId, Integer limit) {
+        return userStorage.getFriendSuggestions(userId, pageSize(limit));
+    }
+
+    public BoundedCache.Stats getCacheStats() {
+        return userCache.stats();
+    }
+
     public List<User> getCommonFriends(int userId, int otherId) {
         return userStorage.getCommonFriends(userId, otherId);
     }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+    }
+
+    private String validationErrors(User item) {
+        Set<ConstraintViolation<User>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
 }
@@ -111,4 +111,6 @@ INSERT INTO film_like (user_id, film_id) VALUES
 -- Петр лайкнул
 (3, 4),
 (3, 8),
-(3, 11);
\ No newline at end of file
+(3, 11);
+
+UPDATE films f SET likes = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id);
\ No newline at end of file
@@ -39,9 +39,12 @@ CREATE TABLE IF NOT EXISTS films (
 	duration INT NOT NULL,
 	release_date DATE NOT NULL,
     rating_id INT NOT NULL,
+    likes INT NOT NULL DEFAULT 0,
 	FOREIGN KEY (rating_id) REFERENCES rating(rating_id)
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes INT NOT NULL DEFAULT 0;
+
 CREATE TABLE IF NOT EXISTS film_genre (
     film_id INT NOT NULL,
     genre_id INT NOT NULL,
@@ -56,4 +59,7 @@ CREATE TABLE IF NOT EXISTS film_like (
     PRIMARY KEY (user_id, film_id),
 	FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
 	FOREIGN KEY (film_id) REFERENCES films(film_id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Столбцы внешних ключей (film_like.film_id, friends.friend_id, film_genre.genre_id, films.rating_id)
+-- H2 индексирует сам при создании ограничения, поэтому отдельные индексы на них не создаются.
@@ -7,31 +7,50 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.controller.ReferenceDataEndpoint;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.cache.UserCache;
 import ru.yandex.practicum.filmorate.repository.impl.FilmDbStorage;
 import ru.yandex.practicum.filmorate.repository.impl.GenreDbStorage;
+import ru.yandex.practicum.filmorate.repository.impl.LikeIndex;
 import ru.yandex.practicum.filmorate.repository.impl.RatingDbStorage;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataDbLoader;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataRegistry;
 import ru.yandex.practicum.filmorate.repository.impl.UserDbStorage;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @JdbcTest
-@Import({UserDbStorage.class, FilmDbStorage.class, GenreDbStorage.class, RatingDbStorage.class})
+@Import({UserDbStorage.class, FilmDbStorage.class, GenreDbStorage.class, RatingDbStorage.class,
+        ReferenceDataRegistry.class, ReferenceDataDbLoader.class, FilmCache.class, UserCache.class,
+        LikeIndex.class, FilmPopularityIndex.class})
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmorateApplicationTests {
     private final UserDbStorage userStorage;
     private final FilmDbStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmCache filmCache;
     private User user1;
     private User user2;
     private User friend1;
@@ -173,6 +192,18 @@ class FilmorateApplicationTests {
         ).isInstanceOf(IncorrectParameterException.class);
     }
 
+    @Test
+    void testAddFriend_duplicateOfUnconfirmedRequest() {
+        User createdUser1 = userStorage.create(user1);
+        User createdUser2 = userStorage.create(user2);
+        jdbcTemplate.update("INSERT INTO friends (user_id, friend_id, friend_status_id) VALUES (?, ?, 1)",
+                createdUser1.getId(), createdUser2.getId());
+
+        assertThatThrownBy(() ->
+                userStorage.addFriends(createdUser1.getId(), createdUser2.getId())
+        ).isInstanceOf(IncorrectParameterException.class);
+    }
+
     @Test
     public void testAddFriend_userNotFound() {
         User createdUser = userStorage.create(user1);
@@ -274,13 +305,9 @@ class FilmorateApplicationTests {
         film1.setDuration(120);
         film1.setReleaseDate(LocalDate.of(2020, 1, 1));
 
-        Rating mpa = new Rating();
-        mpa.setId(1);
-        mpa.setName("G");
+        Rating mpa = new Rating(1, "G");
         film1.setMpa(mpa);
-        Genre genre = new Genre();
-        genre.setId(1);
-        genre.setName("Комедия");
+        Genre genre = new Genre(1, "Комедия");
 
         film1.setGenres(Set.of(genre));
 
@@ -310,15 +337,11 @@ class FilmorateApplicationTests {
         film1.setDuration(136);
         film1.setReleaseDate(LocalDate.of(1999, 3, 31));
 
-        Rating rating = new Rating();
-        rating.setId(1); // должен существовать в data.sql
+        Rating rating = new Rating(1, null); // должен существовать в data.sql
         film1.setMpa(rating);
 
-        Genre genre1 = new Genre();
-        genre1.setId(1);
-
-        Genre genre2 = new Genre();
-        genre2.setId(2);
+        Genre genre1 = new Genre(1, null);
+        Genre genre2 = new Genre(2, null);
 
         film1.setGenres(Set.of(genre1, genre2));
 
@@ -341,6 +364,22 @@ class FilmorateApplicationTests {
                 .containsExactly(1, 2); // порядок важен (ORDER BY genre_id)
     }
 
+    @Test
+    void testReloadReferenceData_refreshesCachedFilms() {
+        Film created = filmStorage.create(newFilm("Reloaded", 1));
+        assertThat(filmStorage.findById(created.getId()).getGenres())
+                .extracting(Genre::getName)
+                .containsExactly("Комедия");
+        jdbcTemplate.update("UPDATE genres SET genre_title = 'Кинокомедия' WHERE genre_id = 1");
+
+        new ReferenceDataEndpoint(referenceData, filmCache).reload();
+
+        assertThat(referenceData.getGenre(1).getName()).isEqualTo("Кинокомедия");
+        assertThat(filmStorage.findById(created.getId()).getGenres())
+                .extracting(Genre::getName)
+                .containsExactly("Кинокомедия");
+    }
+
     @Test
     void testFindFilmById_notFound() {
         assertThatThrownBy(() -> filmStorage.findById(9999))
@@ -356,12 +395,10 @@ class FilmorateApplicationTests {
         film.setDuration(100);
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
 
-        Rating rating = new Rating();
-        rating.setId(1);
+        Rating rating = new Rating(1, null);
         film.setMpa(rating);
 
-        Genre genre1 = new Genre();
-        genre1.setId(1);
+        Genre genre1 = new Genre(1, null);
         film.setGenres(Set.of(genre1));
 
         Film created = filmStorage.create(film);
@@ -371,12 +408,10 @@ class FilmorateApplicationTests {
         created.setDuration(150);
         created.setReleaseDate(LocalDate.of(2010, 5, 5));
 
-        Rating newRating = new Rating();
-        newRating.setId(2);
+        Rating newRating = new Rating(2, null);
         created.setMpa(newRating);
 
-        Genre genre2 = new Genre();
-        genre2.setId(2);
+        Genre genre2 = new Genre(2, null);
         created.setGenres(Set.of(genre2));
 
         Film updated = filmStorage.update(created);
@@ -415,4 +450,382 @@ class FilmorateApplicationTests {
                 filmStorage.addLikeFilm(9999, user.getId())
         ).isInstanceOf(ObjectNotFoundException.class);
     }
+
+    @Test
+    void testFindFilmsByIds_keepsRequestedOrder() {
+        Film first = filmStorage.create(newFilm("First", 1, 2));
+        Film second = filmStorage.create(newFilm("Second", 3));
+
+        List<Film> films = filmStorage.findByIds(List.of(second.getId(), 9999, first.getId()));
+
+        assertThat(films)
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+        assertThat(films.get(1).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    void testGetPopularFilm_orderedByLikes() {
+        User user = userStorage.create(user1);
+        User other = userStorage.create(user2);
+        User third = userStorage.create(friend1);
+        Film film = filmStorage.create(newFilm("Popular", 1));
+        filmStorage.addLikeFilm(film.getId(), user.getId());
+        filmStorage.addLikeFilm(film.getId(), other.getId());
+        filmStorage.addLikeFilm(film.getId(), third.getId());
+
+        List<Film> popular = filmStorage.getPopularFilm(3);
+
+        assertThat(popular).hasSize(3);
+        assertThat(popular.get(0).getId()).isEqualTo(film.getId());
+    }
+
+    @Test
+    void testLikesCounter_followsLikeAndUnlike() {
+        User user = userStorage.create(user1);
+        Film film = filmStorage.create(newFilm("Counted", 1));
+
+        Film liked = filmStorage.addLikeFilm(film.getId(), user.getId());
+        assertThat(liked.getLikes()).isEqualTo(1);
+        assertThat(filmStorage.findById(film.getId()).getLikes()).isEqualTo(1);
+
+        filmStorage.deleteLikeFilm(film.getId(), user.getId());
+        assertThat(filmStorage.findById(film.getId()).getLikes()).isZero();
+    }
+
+    @Test
+    void testAddLikeFilm_likeWrittenConcurrentlyIsNotCountedTwice() {
+        User user = userStorage.create(user1);
+        Film film = filmStorage.create(newFilm("Raced", 1));
+        jdbcTemplate.update("INSERT INTO film_like (user_id, film_id) VALUES (?, ?)", user.getId(), film.getId());
+
+        assertThat(filmStorage.addLikeFilm(film.getId(), user.getId()).getLikes()).isZero();
+        assertThat(filmStorage.findById(film.getId()).getLikes()).isZero();
+    }
+
+    @Test
+    void testReconcileLikes_fixesDrift() {
+        User user = userStorage.create(user1);
+        Film film = filmStorage.create(newFilm("Drifted", 1));
+        filmStorage.addLikeFilm(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE films SET likes = 42 WHERE film_id = ?", film.getId());
+        popularityIndex.setLikes(film.getId(), 42);
+
+        assertThat(filmStorage.reconcileLikes()).isPositive();
+        assertThat(filmStorage.findById(film.getId()).getLikes()).isEqualTo(1);
+        assertThat(popularityIndex.likes(film.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testPopularityIndex_followsLikesAndUserDeletion() {
+        User createdUser1 = userStorage.create(user1);
+        User createdUser2 = userStorage.create(user2);
+        Film film = filmStorage.create(newFilm("Popular", 1));
+
+        filmStorage.addLikeFilm(film.getId(), createdUser1.getId());
+        filmStorage.addLikeFilm(film.getId(), createdUser1.getId());
+        filmStorage.addLikeFilm(film.getId(), createdUser2.getId());
+        assertThat(popularityIndex.likes(film.getId())).isEqualTo(2);
+
+        filmStorage.deleteLikeFilm(film.getId(), createdUser2.getId());
+        assertThat(popularityIndex.likes(film.getId())).isEqualTo(1);
+
+        userStorage.delete(createdUser1.getId());
+        assertThat(popularityIndex.likes(film.getId())).isZero();
+    }
+
+    @Test
+    void testGetFilmsPage_seeksAfterId() {
+        Film first = filmStorage.create(newFilm("Paged first", 1, 2));
+        Film second = filmStorage.create(newFilm("Paged second"));
+
+        List<Film> page = filmStorage.getPage(first.getId() - 1, 2);
+
+        assertThat(page)
+                .extracting(Film::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(page.get(0).getGenres()).hasSize(2);
+        assertThat(filmStorage.getPage(second.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    void testGetUsersPage_seeksAfterId() {
+        User created1 = userStorage.create(user1);
+        User created2 = userStorage.create(user2);
+
+        assertThat(userStorage.getPage(created1.getId() - 1, 1))
+                .extracting(User::getId)
+                .containsExactly(created1.getId());
+        assertThat(userStorage.getPage(created1.getId(), 5))
+                .extracting(User::getId)
+                .containsExactly(created2.getId());
+    }
+
+    @Test
+    void testGetFriendsPage_ordersByFriendId() {
+        userStorage.create(user1);
+        userStorage.create(friend1);
+        userStorage.create(friend2);
+        userStorage.addFriends(user1.getId(), friend2.getId());
+        userStorage.addFriends(user1.getId(), friend1.getId());
+
+        assertThat(userStorage.getFriendsPage(user1.getId(), 0, 1))
+                .extracting(User::getId)
+                .containsExactly(friend1.getId());
+        assertThat(userStorage.getFriendsPage(user1.getId(), friend1.getId(), 1))
+                .extracting(User::getId)
+                .containsExactly(friend2.getId());
+    }
+
+    @Test
+    void testStreamAllFilms_emitsEachFilmOnceWithGenres() {
+        Film created = filmStorage.create(newFilm("Streamed", 1, 2, 3));
+        List<Film> streamed = new ArrayList<>();
+
+        filmStorage.streamAll(streamed::add);
+
+        assertThat(streamed)
+                .extracting(Film::getId)
+                .doesNotHaveDuplicates()
+                .isSorted()
+                .contains(created.getId());
+        assertThat(streamed.get(streamed.size() - 1).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void testFindFilmById_sharesReferenceDataInstances() {
+        Film created = filmStorage.create(newFilm("Canonical", 2));
+
+        Film found = filmStorage.findById(created.getId());
+
+        assertThat(found.getMpa()).isSameAs(referenceData.getRating(1));
+        assertThat(found.getGenres()).containsExactly(referenceData.getGenre(2));
+    }
+
+    @Test
+    void testCreateFilm_unknownGenre() {
+        assertThatThrownBy(() -> filmStorage.create(newFilm("Unknown genre", 99)))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessageContaining("Жанр с id=99");
+    }
+
+    @Test
+    void testUpdateFilm_appliesGenreDiffAndKeepsLikes() {
+        User user = userStorage.create(user1);
+        Film created = filmStorage.create(newFilm("Diff", 1, 2));
+        filmStorage.addLikeFilm(created.getId(), user.getId());
+
+        Film changed = newFilm("Diff updated", 3, 2);
+        changed.setId(created.getId());
+        Film updated = filmStorage.update(changed);
+
+        assertThat(updated.getLikes()).isEqualTo(1);
+        assertThat(updated.getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(2, 3);
+        assertThat(filmStorage.findById(created.getId()).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(2, 3);
+    }
+
+    @Test
+    void testFindFilmById_cachedCopyIsInvalidatedOnUpdateAndLike() {
+        User user = userStorage.create(user1);
+        Film created = filmStorage.create(newFilm("Cached", 1));
+        filmStorage.findById(created.getId()).setName("Mutated outside");
+        assertThat(filmStorage.findById(created.getId()).getName()).isEqualTo("Cached");
+
+        Film changed = newFilm("Cached updated", 2);
+        changed.setId(created.getId());
+        filmStorage.update(changed);
+        filmStorage.addLikeFilm(created.getId(), user.getId());
+
+        Film found = filmStorage.findById(created.getId());
+        assertThat(found.getName()).isEqualTo("Cached updated");
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(found.getLikes()).isEqualTo(1);
+    }
+
+    @Test
+    void testExistsById_tracksCreateAndDelete() {
+        User user = userStorage.create(user1);
+        Film film = filmStorage.create(newFilm("Exists"));
+        List<BatchItemResult> batch = filmStorage.createAll(List.of(newFilm("Exists in batch")));
+
+        assertThat(userStorage.existsById(user.getId())).isTrue();
+        assertThat(filmStorage.existsById(film.getId())).isTrue();
+        assertThat(filmStorage.existsById(batch.get(0).getId())).isTrue();
+        assertThat(filmStorage.existsById(9999)).isFalse();
+
+        userStorage.delete(user.getId());
+
+        assertThat(userStorage.existsById(user.getId())).isFalse();
+        assertThatThrownBy(() -> userStorage.addFriends(user.getId(), 1))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void testFindUserById_cacheFollowsUpdateAndDelete() {
+        User created = userStorage.create(user1);
+        userStorage.findById(created.getId()).setLogin("mutatedOutside");
+        assertThat(userStorage.findById(created.getId()).getLogin()).isEqualTo("user1Login");
+
+        User changed = new User(created.getId(), "changed@mail.ru", "changedLogin", "", LocalDate.of(1991, 2, 2));
+        userStorage.update(changed);
+
+        User found = userStorage.findById(created.getId());
+        assertThat(found.getEmail()).isEqualTo("changed@mail.ru");
+        assertThat(found.getName()).isEqualTo("changedLogin");
+
+        userStorage.delete(created.getId());
+        assertThatThrownBy(() -> userStorage.findById(created.getId()))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void testDeleteUser_removesFriendLinks() {
+        User createdUser1 = userStorage.create(user1);
+        User createdUser2 = userStorage.create(user2);
+        User createdFriend = userStorage.create(friend1);
+        userStorage.addFriends(createdUser1.getId(), createdFriend.getId());
+        userStorage.addFriends(createdUser2.getId(), createdFriend.getId());
+        userStorage.addFriends(createdFriend.getId(), createdUser1.getId());
+
+        userStorage.delete(createdFriend.getId());
+
+        assertThat(userStorage.getFriendsThisUser(createdUser1.getId())).isEmpty();
+        assertThat(userStorage.getFriendsCount(createdUser2.getId())).isZero();
+        assertThat(userStorage.getCommonFriends(createdUser1.getId(), createdUser2.getId())).isEmpty();
+    }
+
+    @Test
+    void testGetFriendSuggestions_excludesExistingFriends() {
+        User createdUser1 = userStorage.create(user1);
+        User createdUser2 = userStorage.create(user2);
+        User createdFriend1 = userStorage.create(friend1);
+        User createdFriend2 = userStorage.create(friend2);
+        userStorage.addFriends(createdUser1.getId(), createdFriend1.getId());
+        userStorage.addFriends(createdUser1.getId(), createdFriend2.getId());
+        userStorage.addFriends(createdUser2.getId(), createdFriend1.getId());
+        userStorage.addFriends(createdUser2.getId(), createdFriend2.getId());
+        userStorage.addFriends(createdFriend1.getId(), createdFriend2.getId());
+
+        List<FriendSuggestion> suggestions = userStorage.getFriendSuggestions(createdUser1.getId(), 10);
+
+        assertThat(suggestions)
+                .extracting(suggestion -> suggestion.getUser().getId(), FriendSuggestion::getMutualFriends)
+                .containsExactly(tuple(createdUser2.getId(), 2));
+    }
+
+    @Test
+    void testGetRecommendations_followsLikesOfSimilarUsers() {
+        User createdUser1 = userStorage.create(user1);
+        User createdUser2 = userStorage.create(user2);
+        User createdFriend = userStorage.create(friend1);
+        Film shared = filmStorage.create(newFilm("Shared"));
+        Film recommended = filmStorage.create(newFilm("Recommended"));
+        Film unrelated = filmStorage.create(newFilm("Unrelated"));
+        filmStorage.addLikeFilm(shared.getId(), createdUser1.getId());
+        filmStorage.addLikeFilm(shared.getId(), createdUser2.getId());
+        filmStorage.addLikeFilm(recommended.getId(), createdUser2.getId());
+        filmStorage.addLikeFilm(unrelated.getId(), createdFriend.getId());
+
+        assertThat(filmStorage.getRecommendations(createdUser1.getId(), 10))
+                .extracting(Film::getId)
+                .containsExactly(recommended.getId());
+
+        filmStorage.deleteLikeFilm(shared.getId(), createdUser2.getId());
+        assertThat(filmStorage.getRecommendations(createdUser1.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    void testCreateAllFilms_reportsPerItemResults() {
+        Film invalid = newFilm("Invalid", 1);
+        invalid.setDuration(-1);
+
+        List<BatchItemResult> results = filmStorage.createAll(
+                List.of(newFilm("Batch one", 1, 2), invalid, newFilm("Bad genre", 99), newFilm("Batch two")));
+
+        assertThat(results)
+                .extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED,
+                        BatchItemResult.Status.FAILED, BatchItemResult.Status.CREATED);
+        assertThat(filmStorage.findById(results.get(0).getId()).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1, 2);
+        assertThat(filmStorage.findById(results.get(3).getId()).getName()).isEqualTo("Batch two");
+    }
+
+    @Test
+    void testCreateAllFilms_reportsMissingReleaseDateAndRating() {
+        Film noReleaseDate = newFilm("No release date", 1);
+        noReleaseDate.setReleaseDate(null);
+        Film noRating = newFilm("No rating", 1);
+        noRating.setMpa(null);
+
+        List<BatchItemResult> results = filmStorage.createAll(List.of(noReleaseDate, noRating, newFilm("Valid")));
+
+        assertThat(results)
+                .extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.FAILED, BatchItemResult.Status.FAILED,
+                        BatchItemResult.Status.CREATED);
+        assertThat(results.get(0).getError()).isEqualTo("Дата релиза обязательна");
+        assertThat(results.get(1).getError()).isEqualTo("Рейтинг обязателен");
+    }
+
+    @Test
+    void testCreateAllUsers_rejectsDuplicateEmails() {
+        userStorage.create(user1);
+        User sameEmail = new User(0, "user1@mail.ru", "otherLogin", "Other", LocalDate.of(1990, 1, 1));
+        User inBatchDuplicate = new User(0, "friend1@mail.ru", "copyLogin", "Copy", LocalDate.of(1990, 1, 1));
+
+        List<BatchItemResult> results = userStorage.createAll(List.of(user2, sameEmail, friend1, inBatchDuplicate));
+
+        assertThat(results)
+                .extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED,
+                        BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED);
+        assertThat(userStorage.findById(results.get(2).getId()).getLogin()).isEqualTo("friend1Login");
+    }
+
+    @Test
+    void testCreateAllUsers_rejectsMissingBirthday() {
+        user2.setBirthday(null);
+
+        List<BatchItemResult> results = userStorage.createAll(List.of(user1, user2));
+
+        assertThat(results)
+                .extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED);
+        assertThat(userStorage.getAll()).extracting(User::getLogin).doesNotContain("user2Login");
+    }
+
+    @Test
+    void testFindUserById_withoutBirthday() {
+        jdbcTemplate.update("INSERT INTO users (name, email, login) VALUES ('legacy', 'legacy@mail.ru', 'legacy')");
+        Integer id = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE login = 'legacy'", Integer.class);
+
+        assertThat(userStorage.findById(id).getBirthday()).isNull();
+    }
+
+    private Film newFilm(String name, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(name + " description");
+        film.setDuration(100);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        Rating rating = new Rating(1, null);
+        film.setMpa(rating);
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : genreIds) {
+            Genre genre = new Genre(genreId, null);
+            genres.add(genre);
+        }
+        film.setGenres(genres);
+        return film;
+    }
 }
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.impl.InMemoryReferenceDataLoader;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataRegistry;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Общие тестовые данные хранилищ: пользователи, фильмы и справочники без базы.
+ */
+public final class TestData {
+    private TestData() {
+    }
+
+    /**
+     * Пользователь с почтой {@code login@mail.ru}, именем и логином {@code login}.
+     */
+    public static User newUser(String login) {
+        return new User(0, login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+
+    /**
+     * Фильм с рейтингом 1 и указанными жанрами.
+     */
+    public static Film newFilm(String name, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Rating(1, null));
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    /**
+     * Справочники профиля {@code in-memory} (жанры и рейтинги из data.sql) без обращения к базе.
+     */
+    public static ReferenceDataRegistry referenceData() {
+        return new ReferenceDataRegistry(new InMemoryReferenceDataLoader());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-stats;DB_CLOSE_DELAY=-1",
+        "filmorate.cache.films.enabled=false",
+        "filmorate.sql.stats.headers=true",
+        "filmorate.sql.stats.max-statements=1"
+})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class SqlStatsFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testResponseWithBody_carriesSqlHeadersAndWarnsOverBudget(CapturedOutput output) throws Exception {
+        MvcResult result = mockMvc.perform(get("/films/popular").param("count", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(SqlStatsFilter.TIME_HEADER))
+                .andReturn();
+
+        int statements = Integer.parseInt(result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertThat(statements).isGreaterThan(1);
+        assertThat(output).contains("GET /films/popular выполнил SQL-запросов: " + statements);
+    }
+
+    @Test
+    void testResponseWithoutBody_carriesSqlHeaders(CapturedOutput output) throws Exception {
+        mockMvc.perform(delete("/users/1/friends/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatsFilter.STATEMENTS_HEADER, "1"))
+                .andExpect(header().exists(SqlStatsFilter.TIME_HEADER));
+
+        assertThat(output).doesNotContain("DELETE /users/1/friends/2 выполнил SQL-запросов");
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SyntheticDatasetTest {
+    private static final SyntheticDataset.Settings SETTINGS =
+            new SyntheticDataset.Settings(2000, 500, 10, 6, 1.0, 42, 50, 4);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void generatesRequestedRowsAndConsistentCounters() {
+        int firstUserId = nextId("users", "user_id");
+        int firstFilmId = nextId("films", "film_id");
+        SyntheticDataset.Summary summary = new SyntheticDataset(jdbcTemplate, SETTINGS).generate();
+
+        assertThat(summary.users()).isEqualTo(2000);
+        assertThat(summary.films()).isEqualTo(500);
+        assertThat(count("SELECT COUNT(*) FROM users WHERE user_id >= ?", firstUserId)).isEqualTo(2000);
+        assertThat(count("SELECT COUNT(*) FROM films WHERE film_id >= ?", firstFilmId)).isEqualTo(500);
+        assertThat(count("SELECT COUNT(*) FROM film_like WHERE film_id >= ?", firstFilmId))
+                .isEqualTo(summary.likes());
+        assertThat(count("SELECT COUNT(*) FROM friends WHERE user_id >= ?", firstUserId))
+                .isEqualTo(summary.friends());
+        assertThat(count("""
+                SELECT COUNT(*) FROM films f
+                WHERE f.film_id >= ? AND f.likes <> (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                """, firstFilmId)).isZero();
+        assertThat(count("""
+                SELECT COUNT(*) FROM friends f
+                WHERE f.user_id >= ? AND NOT EXISTS (
+                    SELECT 1 FROM friends r WHERE r.user_id = f.friend_id AND r.friend_id = f.user_id)
+                """, firstUserId)).isZero();
+
+        int expectedUserId = nextId("users", "user_id");
+        jdbcTemplate.update("INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, DATE '2000-01-01')",
+                "Новый", "new@example.com", "new");
+        assertThat(nextId("users", "user_id")).isEqualTo(expectedUserId + 1);
+    }
+
+    @Test
+    void likesAndFriendshipsFollowPowerLaw() {
+        int firstUserId = nextId("users", "user_id");
+        int firstFilmId = nextId("films", "film_id");
+        SyntheticDataset.Summary summary = new SyntheticDataset(jdbcTemplate, SETTINGS).generate();
+
+        long topFilmLikes = count("""
+                SELECT COALESCE(SUM(likes), 0) FROM (
+                    SELECT likes FROM films WHERE film_id >= ? ORDER BY likes DESC LIMIT 50)
+                """, firstFilmId);
+        assertThat(topFilmLikes * 2).isGreaterThan(summary.likes());
+
+        long maxDegree = count("""
+                SELECT MAX(c) FROM (SELECT COUNT(*) c FROM friends WHERE user_id >= ? GROUP BY user_id)
+                """, firstUserId);
+        assertThat(maxDegree * SETTINGS.users()).isGreaterThan(5 * summary.friends());
+    }
+
+    @Test
+    void sameSeedGivesSameDataset() {
+        List<String> first = generateRelative();
+        List<String> second = generateRelative();
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    /**
+     * Генерирует набор и возвращает его связи в id относительно начала набора,
+     * чтобы сравнивать прогоны, дописанные в одну и ту же базу друг за другом.
+     */
+    private List<String> generateRelative() {
+        int firstUserId = nextId("users", "user_id");
+        int firstFilmId = nextId("films", "film_id");
+        new SyntheticDataset(jdbcTemplate, SETTINGS).generate();
+        List<String> rows = jdbcTemplate.queryForList("""
+                SELECT 'like ' || (user_id - ?) || ' ' || (film_id - ?) FROM film_like
+                WHERE film_id >= ? ORDER BY user_id, film_id
+                """, String.class, firstUserId, firstFilmId, firstFilmId);
+        rows.addAll(jdbcTemplate.queryForList("""
+                SELECT 'friend ' || (user_id - ?) || ' ' || (friend_id - ?) FROM friends
+                WHERE user_id >= ? ORDER BY user_id, friend_id
+                """, String.class, firstUserId, firstUserId, firstUserId));
+        rows.addAll(jdbcTemplate.queryForList("""
+                SELECT 'film ' || (film_id - ?) || ' ' || rating_id || ' ' || release_date FROM films
+                WHERE film_id >= ? ORDER BY film_id
+                """, String.class, firstFilmId, firstFilmId));
+        return rows;
+    }
+
+    private int nextId(String table, String column) {
+        Integer max = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") FROM " + table, Integer.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private long count(String sql, Object... args) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return value == null ? 0 : value;
+    }
+}
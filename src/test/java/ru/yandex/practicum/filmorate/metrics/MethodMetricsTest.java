@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.repository.impl.GenreDbStorage;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataDbLoader;
+import ru.yandex.practicum.filmorate.repository.impl.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.GenreService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@JdbcTest
+@Import({GenreService.class, GenreDbStorage.class, ReferenceDataRegistry.class, ReferenceDataDbLoader.class,
+        MethodMetricsPostProcessor.class, MethodMetricsTest.Registry.class})
+@ImportAutoConfiguration(PropertyPlaceholderAutoConfiguration.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class MethodMetricsTest {
+    private final GenreService genreService;
+    private final GenreDbStorage genreStorage;
+    private final MeterRegistry registry;
+
+    @TestConfiguration
+    static class Registry {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void testServiceAndStorageCalls_areTimedWithOutcomeAndRows() {
+        int genres = genreService.getAllGenres().size();
+        assertThatThrownBy(() -> genreService.findById(999)).isInstanceOf(ObjectNotFoundException.class);
+
+        assertThat(AopUtils.isAopProxy(genreService)).isTrue();
+        assertThat(AopUtils.isAopProxy(genreStorage)).isTrue();
+        assertThat(registry.get(MethodMetricsInterceptor.TIMER)
+                .tags("layer", "service", "class", "GenreService", "method", "getAllGenres", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(MethodMetricsInterceptor.TIMER)
+                .tags("layer", "storage", "class", "GenreDbStorage", "method", "getAll", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(MethodMetricsInterceptor.ROWS)
+                .tags("class", "GenreService", "method", "getAllGenres")
+                .summary().totalAmount()).isEqualTo(genres);
+        assertThat(registry.get(MethodMetricsInterceptor.TIMER)
+                .tags("class", "GenreDbStorage", "method", "findById", "outcome", "error",
+                        "exception", "ObjectNotFoundException")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(MethodMetricsInterceptor.TIMER)
+                .tags("class", "GenreDbStorage", "method", "findById", "outcome", "success")
+                .timer().count()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDisabled_leavesBeansUnwrapped() {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        MethodMetricsPostProcessor postProcessor = new MethodMetricsPostProcessor(false, true, provider);
+        GenreService service = new GenreService(mock(GenreDbStorage.class));
+
+        assertThat(postProcessor.postProcessAfterInitialization(service, "genreService")).isSameAs(service);
+        verifyNoInteractions(provider);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.repository.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    private BoundedCache<Integer, String> cache(BoundedCache.Policy policy, long maxWeight, long ttlNanos) {
+        return new BoundedCache<>(policy, maxWeight, ttlNanos, String::length, clock::get);
+    }
+
+    private void put(BoundedCache<Integer, String> cache, int key, String value) {
+        cache.completeLoad(key, cache.beginLoad(key), value);
+    }
+
+    @Test
+    void testLru_evictsLeastRecentlyUsedByWeight() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LRU, 6, 0);
+        put(cache, 1, "aa");
+        put(cache, 2, "bb");
+        put(cache, 3, "cc");
+        cache.get(1);
+        put(cache, 4, "dd");
+
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isEqualTo("aa");
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().weight()).isEqualTo(6);
+    }
+
+    @Test
+    void testLfu_evictsLeastFrequentlyUsed() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LFU, 3, 0);
+        put(cache, 1, "a");
+        put(cache, 2, "b");
+        put(cache, 3, "c");
+        cache.get(1);
+        cache.get(1);
+        cache.get(3);
+        put(cache, 4, "d");
+
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isEqualTo("a");
+        assertThat(cache.get(3)).isEqualTo("c");
+        assertThat(cache.get(4)).isEqualTo("d");
+    }
+
+    @Test
+    void testTtl_expiresEntries() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LRU, 100, 1_000);
+        put(cache, 1, "a");
+        clock.addAndGet(999);
+        assertThat(cache.get(1)).isEqualTo("a");
+        clock.addAndGet(1);
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    void testInvalidate_rejectsLoadStartedBefore() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LRU, 100, 0);
+        long token = cache.beginLoad(1);
+        cache.invalidate(1);
+        cache.completeLoad(1, token, "stale");
+
+        assertThat(cache.get(1)).isNull();
+        put(cache, 1, "fresh");
+        assertThat(cache.get(1)).isEqualTo("fresh");
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void testPut_supersedesLoadInProgress() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LRU, 100, 0);
+        long token = cache.beginLoad(1);
+        cache.put(1, "written");
+        cache.completeLoad(1, token, "read before write");
+
+        assertThat(cache.get(1)).isEqualTo("written");
+        assertThat(cache.stats().hitRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testOversizedValue_isNotCached() {
+        BoundedCache<Integer, String> cache = cache(BoundedCache.Policy.LRU, 2, 0);
+        put(cache, 1, "abc");
+
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.stats().weight()).isZero();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.GenreService;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("in-memory")
+class InMemoryProfileTest {
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private GenreService genreService;
+
+    @Test
+    void testContext_startsWithoutDataSource() {
+        assertThat(context.getBeanNamesForType(DataSource.class)).isEmpty();
+        assertThat(genreService.getAllGenres()).extracting(Genre::getName).startsWith("Комедия", "Драма");
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exception.ObjectNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.journal.MutationJournal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+import static ru.yandex.practicum.filmorate.TestData.referenceData;
+
+class InMemoryStorageTest {
+    private final MutationJournal journal = new MutationJournal(false, Path.of("."),
+            MutationJournal.FsyncPolicy.ALWAYS, Duration.ofSeconds(1), Duration.ofMinutes(10));
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage(journal);
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage,
+            referenceData(), journal, new FilmPopularityIndex());
+
+    @Test
+    void testCreate_assignsUniqueIdsUnderContention() {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 2_000).parallel()
+                .forEach(i -> ids.add(userStorage.create(newUser("user" + i)).getId()));
+
+        assertThat(ids).hasSize(2_000);
+        assertThat(userStorage.getPage(0, 3)).extracting(User::getId).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void testEmailIndex_followsCreateUpdateAndDelete() {
+        User first = userStorage.create(newUser("first"));
+        User second = userStorage.create(newUser("second"));
+
+        assertThatThrownBy(() -> userStorage.create(newUser("first")))
+                .isInstanceOf(IncorrectParameterException.class);
+        second.setEmail("first@mail.ru");
+        assertThatThrownBy(() -> userStorage.update(second)).isInstanceOf(IncorrectParameterException.class);
+
+        first.setEmail("renamed@mail.ru");
+        userStorage.update(first);
+        assertThat(userStorage.update(second).getEmail()).isEqualTo("first@mail.ru");
+
+        userStorage.delete(first.getId());
+        assertThat(userStorage.create(newUser("renamed")).getId()).isGreaterThan(second.getId());
+    }
+
+    @Test
+    void testCreate_rejectedDuplicateDoesNotUseId() {
+        User first = userStorage.create(newUser("first"));
+        assertThatThrownBy(() -> userStorage.create(newUser("first")))
+                .isInstanceOf(IncorrectParameterException.class);
+
+        assertThat(userStorage.create(newUser("second")).getId()).isEqualTo(first.getId() + 1);
+    }
+
+    @Test
+    void testCreateAll_rejectsMissingBirthday() {
+        User noBirthday = newUser("noBirthday");
+        noBirthday.setBirthday(null);
+
+        List<BatchItemResult> results = userStorage.createAll(List.of(newUser("first"), noBirthday));
+
+        assertThat(results).extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED);
+        assertThat(userStorage.getAll()).extracting(User::getLogin).containsExactly("first");
+    }
+
+    @Test
+    void testFriends_supportCommonFriendsAndSuggestions() {
+        User user = userStorage.create(newUser("user"));
+        User other = userStorage.create(newUser("other"));
+        User friend = userStorage.create(newUser("friend"));
+        userStorage.addFriends(user.getId(), friend.getId());
+        userStorage.addFriends(other.getId(), friend.getId());
+        userStorage.addFriends(friend.getId(), other.getId());
+
+        assertThatThrownBy(() -> userStorage.addFriends(user.getId(), friend.getId()))
+                .isInstanceOf(IncorrectParameterException.class);
+        assertThat(userStorage.getCommonFriends(user.getId(), other.getId()))
+                .extracting(User::getId).containsExactly(friend.getId());
+        assertThat(userStorage.getFriendSuggestions(user.getId(), 10))
+                .extracting(suggestion -> suggestion.getUser().getId()).containsExactly(other.getId());
+
+        userStorage.delete(friend.getId());
+        assertThat(userStorage.getFriendsCount(user.getId())).isZero();
+    }
+
+    @Test
+    void testLikes_drivePopularityAndAreRemovedWithUser() {
+        User user = userStorage.create(newUser("user"));
+        User other = userStorage.create(newUser("other"));
+        Film first = filmStorage.create(newFilm("First"));
+        Film second = filmStorage.create(newFilm("Second"));
+
+        filmStorage.addLikeFilm(second.getId(), user.getId());
+        assertThat(filmStorage.addLikeFilm(second.getId(), other.getId()).getLikes()).isEqualTo(2);
+        filmStorage.addLikeFilm(first.getId(), other.getId());
+        assertThat(filmStorage.getPopularFilm(2)).extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+        assertThat(filmStorage.getRecommendations(user.getId(), 10)).extracting(Film::getId)
+                .containsExactly(first.getId());
+
+        userStorage.delete(other.getId());
+        assertThat(filmStorage.findById(second.getId()).getLikes()).isEqualTo(1);
+        assertThat(filmStorage.getLikesCount()).containsEntry(first.getId(), 0);
+        assertThatThrownBy(() -> filmStorage.deleteLikeFilm(first.getId(), other.getId()))
+                .isInstanceOf(IncorrectParameterException.class);
+        assertThat(filmStorage.reconcileLikes()).isZero();
+    }
+
+    @Test
+    void testFilms_resolveReferenceDataAndAreIsolatedFromCallers() {
+        Film film = newFilm("Film");
+        film.setGenres(Set.of(new Genre(2, null), new Genre(1, null)));
+        Film created = filmStorage.create(film);
+
+        created.setName("Changed");
+        Film found = filmStorage.findById(created.getId());
+        assertThat(found.getName()).isEqualTo("Film");
+        assertThat(found.getMpa().getName()).isEqualTo("G");
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+
+        film.setMpa(new Rating(9, null));
+        assertThatThrownBy(() -> filmStorage.create(film)).isInstanceOf(ObjectNotFoundException.class);
+    }
+}
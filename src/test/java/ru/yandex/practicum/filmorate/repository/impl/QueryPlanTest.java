@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.cache.UserCache;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+/**
+ * Проверяет планы всех запросов, которые выполняют хранилища на базе.
+ * Запросы перехватываются на уровне соединения вместе с параметрами и прогоняются через
+ * {@code EXPLAIN}. Полный проход по таблице допустим только для запросов из {@link #FULL_SCANS},
+ * которые читают таблицу целиком намеренно; любой другой {@code tableScan} роняет тест.
+ */
+@JdbcTest
+@Import({UserDbStorage.class, FilmDbStorage.class, ReferenceDataRegistry.class, ReferenceDataDbLoader.class,
+        FilmCache.class, UserCache.class, LikeIndex.class, FilmPopularityIndex.class,
+        QueryPlanTest.Recording.class})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+    private static final Map<String, Set<String>> FULL_SCANS = Map.of(
+            normalize("SELECT film_id FROM films"), Set.of("FILMS"),
+            normalize("SELECT user_id FROM users"), Set.of("USERS"),
+            normalize("select * from users"), Set.of("USERS"),
+            normalize("SELECT user_id, film_id FROM film_like"), Set.of("FILM_LIKE"),
+            normalize("""
+                    SELECT f.film_id, f.film_name, f.description, f.release_date, f.duration, f.likes,
+                           r.rating_id, r.rating_title, g.genre_id, g.genre_title
+                    FROM films f
+                    LEFT JOIN rating r ON f.rating_id = r.rating_id
+                    LEFT JOIN film_genre fg ON f.film_id = fg.film_id
+                    LEFT JOIN genres g ON fg.genre_id = g.genre_id
+                    ORDER BY f.film_id, g.genre_id
+                    """), Set.of("FILMS"),
+            normalize("""
+                    UPDATE films f
+                    SET likes = (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                    WHERE likes <> (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                    """), Set.of("FILMS"));
+
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final StatementRecorder recorder;
+
+    @Test
+    void testStorageQueries_useIndexes() throws SQLException {
+        exerciseStorages();
+
+        Map<String, String> violations = new TreeMap<>();
+        for (Map.Entry<String, List<Object>> statement : recorder.statements().entrySet()) {
+            String plan = explain(statement.getKey(), statement.getValue());
+            Set<String> scanned = new TreeSet<>();
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                scanned.add(matcher.group(1));
+            }
+            scanned.removeAll(FULL_SCANS.getOrDefault(statement.getKey(), Set.of()));
+            if (!scanned.isEmpty()) {
+                violations.put(statement.getKey(), plan);
+            }
+        }
+
+        assertThat(recorder.statements()).hasSizeGreaterThan(30);
+        assertThat(violations).isEmpty();
+    }
+
+    private void exerciseStorages() {
+        User user = userStorage.create(newUser("user"));
+        User friend = userStorage.create(newUser("friend"));
+        User other = userStorage.create(newUser("other"));
+        userStorage.createAll(List.of(newUser("batch1"), newUser("batch2")));
+        user.setName("Новое имя");
+        userStorage.update(user);
+        userStorage.addFriends(user.getId(), friend.getId());
+        userStorage.addFriends(other.getId(), friend.getId());
+        userStorage.addFriends(friend.getId(), other.getId());
+        userStorage.getFriendsThisUser(user.getId());
+        userStorage.getFriendsPage(user.getId(), 0, 10);
+        userStorage.getCommonFriends(user.getId(), other.getId());
+        userStorage.getFriendSuggestions(user.getId(), 10);
+        userStorage.getAll();
+        userStorage.getPage(0, 10);
+        userStorage.streamAll(found -> { });
+        userStorage.deleteFriends(user.getId(), friend.getId());
+
+        Film film = filmStorage.create(newFilm("Фильм", 1));
+        Film otherFilm = filmStorage.create(newFilm("Другой фильм", 1));
+        filmStorage.createAll(List.of(newFilm("Пакет 1", 1), newFilm("Пакет 2", 1)));
+        film.setGenres(Set.of(new Genre(2, null), new Genre(3, null)));
+        filmStorage.update(film);
+        filmStorage.addLikeFilm(film.getId(), user.getId());
+        filmStorage.addLikeFilm(film.getId(), friend.getId());
+        filmStorage.addLikeFilm(otherFilm.getId(), friend.getId());
+        filmStorage.deleteLikeFilm(film.getId(), friend.getId());
+        filmStorage.applyLikeChanges(List.of(new LikeChange(otherFilm.getId(), other.getId(), true),
+                new LikeChange(film.getId(), user.getId(), false)));
+        filmStorage.getPopularFilm(10);
+        filmStorage.getRecommendations(other.getId(), 10);
+        filmStorage.getAll();
+        filmStorage.getPage(0, 10);
+        filmStorage.streamAll(found -> { });
+        jdbcTemplate.update("UPDATE films SET likes = likes + 1 WHERE film_id = ?", film.getId());
+        filmStorage.reconcileLikes();
+        filmStorage.getLikesCount();
+        userStorage.delete(friend.getId());
+    }
+
+    private String explain(String sql, List<Object> parameters) throws SQLException {
+        try (Connection connection = recorder.target().getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    @TestConfiguration
+    static class Recording {
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+
+    /**
+     * Оборачивает источник данных и запоминает запросы, выполненные из пакета хранилищ,
+     * с параметрами последнего выполнения.
+     */
+    static class StatementRecorder implements BeanPostProcessor {
+        private static final String STORAGE_PACKAGE = QueryPlanTest.class.getPackageName() + ".";
+        private final Map<String, List<Object>> statements = new LinkedHashMap<>();
+        private DataSource target;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || target != null) {
+                return bean;
+            }
+            target = dataSource;
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return proxy(Connection.class, super.getConnection(), null);
+                }
+            };
+        }
+
+        DataSource target() {
+            return target;
+        }
+
+        synchronized Map<String, List<Object>> statements() {
+            return new LinkedHashMap<>(statements);
+        }
+
+        private <T> T proxy(Class<T> type, T delegate, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (sql != null && name.startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer index) {
+                            parameters.put(index, name.equals("setNull") ? null : args[1]);
+                        } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                            String executed = sql != null ? sql : args != null && args.length > 0
+                                    && args[0] instanceof String text ? text : null;
+                            if (executed != null) {
+                                record(executed, new ArrayList<>(parameters.values()));
+                            }
+                        }
+                        Object result = invoke(method, delegate, args);
+                        if (name.equals("prepareStatement")) {
+                            return proxy(PreparedStatement.class, (PreparedStatement) result, (String) args[0]);
+                        }
+                        if (name.equals("createStatement")) {
+                            return proxy(Statement.class, (Statement) result, null);
+                        }
+                        return result;
+                    }));
+        }
+
+        private synchronized void record(String sql, List<Object> parameters) {
+            boolean fromStorage = StackWalker.getInstance().walk(frames -> frames.anyMatch(frame ->
+                    frame.getClassName().startsWith(STORAGE_PACKAGE) && !frame.getClassName().contains("Test")));
+            if (fromStorage) {
+                statements.put(normalize(sql), parameters);
+            }
+        }
+
+        private static Object invoke(Method method, Object delegate, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
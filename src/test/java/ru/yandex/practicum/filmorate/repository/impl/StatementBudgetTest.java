@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.cache.FilmCache;
+import ru.yandex.practicum.filmorate.repository.cache.UserCache;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.jdbc.JdbcStatementCounter;
+import ru.yandex.practicum.filmorate.repository.jdbc.SqlStatementStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.repository.jdbc.StatementBudget.atMost;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+/**
+ * Бюджеты SQL-запросов горячих методов хранилищ: число запросов не должно расти
+ * с числом друзей и фильмов, иначе это N+1.
+ */
+@JdbcTest(properties = {"filmorate.cache.films.enabled=false", "filmorate.cache.users.enabled=false"})
+@Import({UserDbStorage.class, FilmDbStorage.class, ReferenceDataRegistry.class, ReferenceDataDbLoader.class,
+        FilmCache.class, UserCache.class, LikeIndex.class, FilmPopularityIndex.class, JdbcStatementCounter.class})
+@ImportAutoConfiguration(PropertyPlaceholderAutoConfiguration.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class StatementBudgetTest {
+    private static final int FRIENDS = 5;
+    private static final int FILMS = 12;
+
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private User user;
+    private User other;
+    private final List<Film> films = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userStorage.create(newUser("user"));
+        other = userStorage.create(newUser("other"));
+        for (int i = 0; i < FRIENDS; i++) {
+            User friend = userStorage.create(newUser("friend" + i));
+            userStorage.addFriends(user.getId(), friend.getId());
+            userStorage.addFriends(other.getId(), friend.getId());
+        }
+        for (int i = 0; i < FILMS; i++) {
+            Film film = filmStorage.create(newFilm("Фильм " + i, 1, 2));
+            films.add(film);
+            filmStorage.addLikeFilm(film.getId(), i % 2 == 0 ? user.getId() : other.getId());
+        }
+    }
+
+    @Test
+    void testFilmReads_stayWithinBudget() {
+        assertThat(atMost(2, () -> filmStorage.getPopularFilm(10))).hasSize(10);
+        assertThat(atMost(1, () -> filmStorage.findById(films.get(0).getId())).getGenres()).hasSize(2);
+        assertThat(atMost(1, filmStorage::getAll)).hasSizeGreaterThanOrEqualTo(FILMS);
+        atMost(2, () -> filmStorage.getRecommendations(user.getId(), 10));
+    }
+
+    @Test
+    void testFriendReads_stayWithinBudget() {
+        assertThat(atMost(1, () -> userStorage.getFriendsThisUser(user.getId()))).hasSize(FRIENDS);
+        assertThat(atMost(1, () -> userStorage.getCommonFriends(user.getId(), other.getId()))).hasSize(FRIENDS);
+        assertThat(atMost(1, () -> userStorage.findById(user.getId())).getLogin()).isEqualTo("user");
+    }
+
+    @Test
+    void testWrites_stayWithinBudget() {
+        atMost(5, () -> filmStorage.addLikeFilm(films.get(1).getId(), user.getId()));
+        atMost(1, () -> userStorage.addFriends(user.getId(), other.getId()));
+        atMost(1, () -> userStorage.deleteFriends(user.getId(), other.getId()));
+    }
+
+    @Test
+    void testNestedScope_addsStatementsToOuter() {
+        userStorage.findById(user.getId());
+        assertThat(SqlStatementStats.current()).isNull();
+
+        try (SqlStatementStats.Scope outer = SqlStatementStats.open()) {
+            userStorage.findById(user.getId());
+            try (SqlStatementStats.Scope inner = SqlStatementStats.open()) {
+                filmStorage.getPopularFilm(10);
+                assertThat(inner.snapshot().statements()).isEqualTo(2);
+            }
+            assertThat(outer.snapshot().statements()).isEqualTo(3);
+            assertThat(outer.snapshot().nanos()).isPositive();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmPopularityIndexTest {
+    private FilmPopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmPopularityIndex();
+        index.rebuild(Map.of(1, 3, 2, 1, 3, 0));
+    }
+
+    @Test
+    void testRebuild_ordersByLikes() {
+        assertThat(index.top(10)).containsExactly(1, 2, 3);
+        assertThat(index.rank(1)).isEqualTo(1);
+        assertThat(index.rank(3)).isEqualTo(3);
+        assertThat(index.rank(42)).isZero();
+    }
+
+    @Test
+    void testIncrement_movesFilmUp() {
+        index.increment(3);
+        index.increment(3);
+
+        assertThat(index.likes(3)).isEqualTo(2);
+        assertThat(index.top(2)).containsExactly(1, 3);
+    }
+
+    @Test
+    void testDecrement_movesFilmDown() {
+        index.decrement(1);
+        index.decrement(1);
+        index.decrement(1);
+        index.decrement(1);
+
+        assertThat(index.likes(1)).isZero();
+        assertThat(index.top(1)).containsExactly(2);
+    }
+
+    @Test
+    void testAddAndRemoveFilm() {
+        index.addFilm(10);
+        index.setLikes(10, 5);
+        assertThat(index.rank(10)).isEqualTo(1);
+
+        index.removeFilm(10);
+        assertThat(index.rank(10)).isZero();
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.top(10)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void testRebuild_skipsSnapshotReadBeforeLastChange() {
+        long version = index.version();
+        index.increment(3);
+
+        assertThat(index.rebuild(version, Map.of(1, 3, 2, 1, 3, 0))).isFalse();
+        assertThat(index.likes(3)).isEqualTo(1);
+        assertThat(index.rebuild(index.version(), Map.of(1, 3, 2, 1, 3, 1))).isTrue();
+    }
+
+    @Test
+    void testRandomOperations_keepOrderConsistentWithCounts() {
+        Random random = new Random(7);
+        Map<Integer, Integer> expected = new HashMap<>(Map.of(1, 3, 2, 1, 3, 0));
+        for (int i = 0; i < 5000; i++) {
+            int filmId = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                index.decrement(filmId);
+                expected.computeIfPresent(filmId, (id, likes) -> Math.max(0, likes - 1));
+            } else {
+                index.increment(filmId);
+                expected.merge(filmId, 1, Integer::sum);
+            }
+        }
+        int[] top = index.top(Integer.MAX_VALUE);
+        for (int i = 1; i < top.length; i++) {
+            assertThat(index.likes(top[i - 1])).isGreaterThanOrEqualTo(index.likes(top[i]));
+        }
+        expected.forEach((filmId, likes) -> assertThat(index.likes(filmId)).isEqualTo(likes));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTest {
+    @Test
+    void testRebuild_sortsAdjacency() {
+        FriendGraph graph = new FriendGraph();
+        graph.rebuild(new int[]{1, 1, 1, 2}, new int[]{5, 3, 4, 3}, 4);
+
+        assertThat(graph.friends(1)).containsExactly(3, 4, 5);
+        assertThat(graph.degree(2)).isEqualTo(1);
+        assertThat(graph.friendsAfter(1, 3, 1)).containsExactly(4);
+        assertThat(graph.common(1, 2)).containsExactly(3);
+        assertThat(graph.friends(42)).isEmpty();
+    }
+
+    @Test
+    void testRemoveUser_dropsBothDirections() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 2);
+        graph.add(2, 3);
+        graph.add(3, 2);
+
+        int[][] links = graph.removeUser(2);
+
+        assertThat(links[0]).containsExactly(3);
+        assertThat(links[1]).containsExactly(1, 3);
+        assertThat(graph.friends(1)).isEmpty();
+        assertThat(graph.friends(3)).isEmpty();
+        assertThat(graph.contains(2, 3)).isFalse();
+    }
+
+    @Test
+    void testCommon_matchesSetIntersectionForSkewedSizes() {
+        Random random = new Random(7);
+        FriendGraph graph = new FriendGraph();
+        TreeSet<Integer> large = new TreeSet<>();
+        TreeSet<Integer> small = new TreeSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int friendId = 3 + random.nextInt(300_000);
+            graph.add(1, friendId);
+            large.add(friendId);
+        }
+        int[] largeIds = large.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < 200; i++) {
+            int friendId = random.nextBoolean()
+                    ? largeIds[random.nextInt(largeIds.length)]
+                    : 3 + random.nextInt(300_000);
+            graph.add(2, friendId);
+            small.add(friendId);
+        }
+        graph.remove(1, large.first());
+        large.remove(large.first());
+
+        TreeSet<Integer> expected = new TreeSet<>(small);
+        expected.retainAll(large);
+        assertThat(graph.common(1, 2)).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(graph.common(2, 1)).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(graph.degree(1)).isEqualTo(large.size());
+    }
+
+    @Test
+    void testSuggest_ranksNonFriendsByMutualFriends() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(4, 2);
+        graph.add(4, 3);
+        graph.add(5, 3);
+        graph.add(2, 3);
+
+        assertThat(graph.suggest(1, 10, ForkJoinPool.commonPool()))
+                .containsExactly(new ScoredId(4, 2), new ScoredId(5, 1));
+        assertThat(graph.suggest(1, 1, ForkJoinPool.commonPool()))
+                .containsExactly(new ScoredId(4, 2));
+        assertThat(graph.suggest(3, 10, ForkJoinPool.commonPool())).isEmpty();
+    }
+
+    @Test
+    void testSuggest_parallelTraversalMatchesBruteForce() {
+        Random random = new Random(11);
+        FriendGraph graph = new FriendGraph();
+        int users = 2_000;
+        for (int i = 0; i < 60_000; i++) {
+            int userId = 1 + random.nextInt(users);
+            int friendId = 1 + random.nextInt(users);
+            if (userId != friendId) {
+                graph.add(userId, friendId);
+            }
+        }
+
+        Map<Integer, Integer> mutual = new HashMap<>();
+        for (int candidate = 1; candidate <= users; candidate++) {
+            if (candidate != 1 && !graph.contains(1, candidate)) {
+                int count = graph.common(1, candidate).length;
+                if (count > 0) {
+                    mutual.put(candidate, count);
+                }
+            }
+        }
+        List<ScoredId> expected = new ArrayList<>();
+        mutual.forEach((id, count) -> expected.add(new ScoredId(id, count)));
+        expected.sort(Comparator.comparingInt(ScoredId::score).reversed().thenComparingInt(ScoredId::id));
+
+        assertThat(graph.suggest(1, 25, ForkJoinPool.commonPool())).isEqualTo(expected.subList(0, 25));
+    }
+}
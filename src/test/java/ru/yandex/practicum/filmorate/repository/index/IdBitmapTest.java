@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdBitmapTest {
+    @Test
+    void testRebuild_containsOnlyLoadedIds() {
+        IdBitmap ids = new IdBitmap();
+        ids.rebuild(List.of(1, 64, 1000, 64));
+
+        assertThat(ids.contains(1)).isTrue();
+        assertThat(ids.contains(64)).isTrue();
+        assertThat(ids.contains(1000)).isTrue();
+        assertThat(ids.contains(2)).isFalse();
+        assertThat(ids.contains(-1)).isFalse();
+        assertThat(ids.contains(100_000)).isFalse();
+        assertThat(ids.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testAddAndRemove_growsAndKeepsCardinality() {
+        IdBitmap ids = new IdBitmap();
+        ids.add(5);
+        ids.add(70_000);
+        ids.add(5);
+        ids.remove(5);
+        ids.remove(6);
+
+        assertThat(ids.contains(5)).isFalse();
+        assertThat(ids.contains(70_000)).isTrue();
+        assertThat(ids.size()).isEqualTo(1);
+    }
+}
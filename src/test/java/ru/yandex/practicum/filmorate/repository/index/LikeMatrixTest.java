@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeMatrixTest {
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    @Test
+    void testRecommend_weightsFilmsBySimilarity() {
+        LikeMatrix matrix = new LikeMatrix();
+        matrix.rebuild(new int[]{1, 1, 2, 2, 2, 3, 3}, new int[]{10, 11, 10, 11, 20, 10, 21}, 7);
+
+        assertThat(matrix.recommend(1, 10, 10, pool))
+                .containsExactly(new ScoredId(20, 2), new ScoredId(21, 1));
+        assertThat(matrix.recommend(1, 1, 10, pool))
+                .containsExactly(new ScoredId(20, 2));
+        assertThat(matrix.recommend(4, 10, 10, pool)).isEmpty();
+    }
+
+    @Test
+    void testLikeUnlikeAndRemoveUser_keepBothProjections() {
+        LikeMatrix matrix = new LikeMatrix();
+        matrix.like(1, 10);
+        matrix.like(2, 10);
+        matrix.like(2, 20);
+        assertThat(matrix.like(2, 20)).isFalse();
+        assertThat(matrix.recommend(1, 10, 10, pool)).containsExactly(new ScoredId(20, 1));
+
+        matrix.unlike(2, 10);
+        assertThat(matrix.recommend(1, 10, 10, pool)).isEmpty();
+
+        matrix.like(2, 10);
+        assertThat(matrix.removeUser(2)).containsExactly(10, 20);
+        assertThat(matrix.likedFilms(2)).isEmpty();
+        assertThat(matrix.recommend(1, 10, 10, pool)).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitedDataSourceTest {
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+
+    @Test
+    void testGetConnection_timesOutWhenAllPermitsAreTaken() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(20));
+
+        Connection first = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        dataSource.getConnection().close();
+        verify(connection, times(3)).close();
+        assertThat(dataSource.stats())
+                .extracting(ConcurrencyLimitedDataSource.Stats::active, ConcurrencyLimitedDataSource.Stats::acquired,
+                        ConcurrencyLimitedDataSource.Stats::timeouts)
+                .containsExactly(0, 2L, 1L);
+    }
+
+    @Test
+    void testGetConnection_releasesPermitWhenTargetFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("down")).thenReturn(connection);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(20));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("down");
+        assertThat(dataSource.getConnection()).isNotNull();
+        assertThat(dataSource.stats().active()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetConnection_boundsConcurrencyOfVirtualThreads() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(target.getConnection()).thenAnswer(invocation -> {
+            peak.accumulateAndGet(open.incrementAndGet(), Math::max);
+            return connection;
+        });
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 4, Duration.ofSeconds(10));
+        int tasks = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Connection limited = dataSource.getConnection();
+                    Thread.sleep(1);
+                    open.decrementAndGet();
+                    limited.close();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(peak.get()).isLessThanOrEqualTo(4);
+        assertThat(dataSource.stats().acquired()).isEqualTo(tasks);
+        assertThat(dataSource.stats().active()).isZero();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalDatabaseInitializerTest {
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:incremental-init;DB_CLOSE_DELAY=-1", "sa", "password");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @Test
+    void testInitializeDatabase_seedsEmptyDatabaseWithLikeCounters() {
+        IncrementalDatabaseInitializer initializer = new IncrementalDatabaseInitializer(dataSource,
+                new DefaultResourceLoader(), "classpath:schema.sql", "classpath:data.sql");
+
+        assertThat(initializer.initializeDatabase()).isTrue();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_like", Integer.class)).isPositive();
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM films f
+                WHERE f.likes <> (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                """, Integer.class)).isZero();
+
+        jdbcTemplate.update("UPDATE films SET likes = likes + 1 WHERE film_id = 1");
+        assertThat(initializer.initializeDatabase()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT f.likes - (SELECT COUNT(*) FROM film_like fl WHERE fl.film_id = f.film_id)
+                FROM films f WHERE f.film_id = 1
+                """, Integer.class)).isEqualTo(1);
+    }
+}
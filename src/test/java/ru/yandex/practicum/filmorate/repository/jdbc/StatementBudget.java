@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import java.util.function.Supplier;
+
+/**
+ * Проверка бюджета SQL-запросов в тестах: {@code StatementBudget.atMost(2, () -> storage.getPopularFilm(10))}
+ * падает, если вызов выполнил больше запросов. Источник данных теста должен быть обёрнут
+ * {@link JdbcStatementCounter} (достаточно импортировать его в контекст).
+ */
+public final class StatementBudget {
+    private StatementBudget() {
+    }
+
+    public static <T> T atMost(int maxStatements, Supplier<T> action) {
+        try (SqlStatementStats.Scope scope = SqlStatementStats.open()) {
+            T result = action.get();
+            int statements = scope.snapshot().statements();
+            if (statements > maxStatements) {
+                throw new AssertionError("Ожидалось не больше " + maxStatements + " SQL-запросов, выполнено "
+                        + statements);
+            }
+            return result;
+        }
+    }
+
+    public static void atMost(int maxStatements, Runnable action) {
+        atMost(maxStatements, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
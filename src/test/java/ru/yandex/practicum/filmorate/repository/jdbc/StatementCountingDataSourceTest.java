@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCountingDataSourceTest {
+
+    @Test
+    void testClose_closesTargetPool() throws Exception {
+        HikariDataSource pool = pool("statement-counting-close");
+
+        try (StatementCountingDataSource dataSource = new StatementCountingDataSource(pool)) {
+            dataSource.getConnection().close();
+        }
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @Test
+    void testContextClose_closesWrappedPool() {
+        HikariDataSource pool = pool("statement-counting-context");
+
+        new ApplicationContextRunner()
+                .withBean(JdbcStatementCounter.class, () -> new JdbcStatementCounter(true))
+                .withBean("dataSource", DataSource.class, () -> pool,
+                        definition -> definition.setDestroyMethodName(AbstractBeanDefinition.INFER_METHOD))
+                .run(context -> {
+                    DataSource dataSource = context.getBean(DataSource.class);
+                    assertThat(dataSource).isInstanceOf(StatementCountingDataSource.class);
+                    try (Connection connection = dataSource.getConnection()) {
+                        assertThat(connection.isValid(1)).isTrue();
+                    }
+                });
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name);
+        return pool;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Виртуальный поток внутри {@code synchronized} закрепляется за несущим потоком. Код приложения
+ * защищает общее состояние через {@code java.util.concurrent.locks}, и тест проверяет это по байт-коду:
+ * ни синхронизированных методов, ни инструкций {@code monitorenter}.
+ */
+class VirtualThreadPinningTest {
+
+    @Test
+    void testApplicationClasses_doNotUseMonitors() throws IOException, URISyntaxException {
+        Path classes = Path.of(FilmorateApplication.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> monitors = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".class")).toList()) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    new ClassReader(in).accept(new MonitorFinder(monitors), ClassReader.SKIP_DEBUG);
+                }
+            }
+        }
+
+        assertThat(monitors).isEmpty();
+    }
+
+    private static final class MonitorFinder extends ClassVisitor {
+        private final List<String> monitors;
+        private String className;
+
+        private MonitorFinder(List<String> monitors) {
+            super(Opcodes.ASM9);
+            this.monitors = monitors;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            className = name;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            String method = className + "." + name;
+            if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+                monitors.add(method + " synchronized");
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.MONITORENTER) {
+                        monitors.add(method + " monitorenter");
+                    }
+                }
+            };
+        }
+    }
+}
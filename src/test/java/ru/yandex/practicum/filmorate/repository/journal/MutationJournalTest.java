@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.repository.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.repository.impl.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.repository.index.FilmPopularityIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+import static ru.yandex.practicum.filmorate.TestData.referenceData;
+
+class MutationJournalTest {
+    @TempDir
+    private Path directory;
+    private MutationJournal journal;
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void testRecover_replaysJournalIntoFreshStorages() {
+        open();
+        User user = userStorage.create(newUser("user"));
+        User friend = userStorage.create(newUser("friend"));
+        User removed = userStorage.create(newUser("removed"));
+        userStorage.addFriends(user.getId(), friend.getId());
+        Film film = newFilm("Film");
+        film.setGenres(Set.of(new Genre(2, null)));
+        film = filmStorage.create(film);
+        filmStorage.addLikeFilm(film.getId(), user.getId());
+        filmStorage.addLikeFilm(film.getId(), removed.getId());
+        userStorage.delete(removed.getId());
+
+        reopen();
+
+        assertRecovered(user, friend, film);
+        assertThat(userStorage.create(newUser("next")).getId()).isGreaterThan(removed.getId());
+    }
+
+    @Test
+    void testRecover_combinesSnapshotWithLaterJournal() throws IOException {
+        open();
+        User user = userStorage.create(newUser("user"));
+        User friend = userStorage.create(newUser("friend"));
+        Film film = filmStorage.create(newFilm("Film"));
+        journal.snapshot();
+        userStorage.addFriends(user.getId(), friend.getId());
+        film.setGenres(Set.of(new Genre(2, null)));
+        filmStorage.update(film);
+        filmStorage.addLikeFilm(film.getId(), user.getId());
+
+        reopen();
+
+        assertRecovered(user, friend, film);
+        assertThat(files(".snap")).hasSize(1);
+        assertThat(files(".log")).hasSize(1);
+    }
+
+    @Test
+    void testRecover_keepsIdOfUserDeletedBeforeSnapshot() {
+        open();
+        userStorage.create(newUser("user"));
+        User removed = userStorage.create(newUser("removed"));
+        userStorage.delete(removed.getId());
+        journal.snapshot();
+
+        reopen();
+
+        assertThat(userStorage.create(newUser("next")).getId()).isGreaterThan(removed.getId());
+    }
+
+    @Test
+    void testRecover_truncatesTornTail() throws IOException {
+        open();
+        User user = userStorage.create(newUser("user"));
+        journal.close();
+        Path segment = files(".log").get(0);
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        open();
+
+        assertThat(Files.size(segment)).isEqualTo(intact);
+        assertThat(userStorage.findById(user.getId()).getEmail()).isEqualTo("user@mail.ru");
+        User next = userStorage.create(newUser("next"));
+        reopen();
+        assertThat(userStorage.findById(next.getId()).getEmail()).isEqualTo("next@mail.ru");
+    }
+
+    private void assertRecovered(User user, User friend, Film film) {
+        assertThat(userStorage.getFriendsThisUser(user.getId())).extracting(User::getId)
+                .containsExactly(friend.getId());
+        assertThatThrownBy(() -> userStorage.create(newUser("user")))
+                .isInstanceOf(IncorrectParameterException.class);
+        Film recovered = filmStorage.findById(film.getId());
+        assertThat(recovered.getName()).isEqualTo("Film");
+        assertThat(recovered.getMpa().getName()).isEqualTo("G");
+        assertThat(recovered.getGenres()).extracting(Genre::getName).containsExactly("Драма");
+        assertThat(recovered.getLikes()).isEqualTo(1);
+        assertThat(filmStorage.getPopularFilm(1)).extracting(Film::getId).containsExactly(film.getId());
+    }
+
+    private void reopen() {
+        journal.close();
+        open();
+    }
+
+    private void open() {
+        journal = new MutationJournal(true, directory, MutationJournal.FsyncPolicy.ALWAYS,
+                Duration.ofSeconds(1), Duration.ofMinutes(10));
+        userStorage = new InMemoryUserStorage(journal);
+        filmStorage = new InMemoryFilmStorage(userStorage, referenceData(), journal, new FilmPopularityIndex());
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).toList();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikeWriteBufferTest {
+    private final FilmStorage filmStorage = mock(FilmStorage.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_coalescesChangesPerFilmAndUser() {
+        when(filmStorage.applyLikeChanges(any())).thenReturn(Map.of(1, 0, 2, 1));
+        LikeWriteBuffer buffer = newBuffer(10);
+
+        buffer.submit(1, 10, true);
+        buffer.submit(2, 10, true);
+        buffer.submit(1, 10, false);
+
+        assertThat(buffer.flush()).isEqualTo(2);
+        ArgumentCaptor<Collection<LikeChange>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(filmStorage).applyLikeChanges(captor.capture());
+        assertThat(captor.getValue())
+                .containsExactly(new LikeChange(1, 10, false), new LikeChange(2, 10, true));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void testSubmit_skipsChangesThatMatchCurrentState() {
+        when(filmStorage.isLiked(1, 10)).thenReturn(true);
+        LikeWriteBuffer buffer = newBuffer(10);
+
+        assertThat(buffer.submit(1, 10, true)).isFalse();
+        assertThat(buffer.submit(2, 10, false)).isFalse();
+        assertThat(buffer.submit(2, 10, true)).isTrue();
+        assertThat(buffer.submit(2, 10, true)).isFalse();
+        assertThat(buffer.submit(2, 10, false)).isTrue();
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testSubmit_rejectsWhenQueueIsFull() {
+        LikeWriteBuffer buffer = newBuffer(1);
+        buffer.submit(1, 10, true);
+
+        buffer.submit(1, 10, false);
+        assertThatThrownBy(() -> buffer.submit(2, 10, true))
+                .isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    void testSubmit_writesImmediatelyAfterStop() {
+        when(filmStorage.applyLikeChanges(any())).thenReturn(Map.of(1, 1));
+        LikeWriteBuffer buffer = newBuffer(10);
+        buffer.start();
+        buffer.stop();
+
+        buffer.submit(1, 10, true);
+
+        verify(filmStorage).applyLikeChanges(List.of(new LikeChange(1, 10, true)));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    private LikeWriteBuffer newBuffer(int capacity) {
+        return new LikeWriteBuffer(filmStorage, true, capacity, 100, Duration.ofSeconds(1), Duration.ofMillis(10));
+    }
+}